@@ -0,0 +1,237 @@
+package com.circomlib.crypto.digests;
+
+import org.bouncycastle.crypto.ExtendedDigest;
+
+/**
+ * BLAKE-512, the 64 bits words version of {@link BlakeDigest} : 128 bytes blocks, 16 rounds
+ * and a 128 bits counter. circomlib uses it to derive the EdDSA keys and nonces.
+ */
+public class Blake512Digest implements ExtendedDigest {
+
+    private static final int BLOCK_LENGTH = 128;
+    private static final int DIGEST_LENGTH = 64;
+    private static final int ROUNDS = 16;
+
+    // Message word permutations:
+    private static final byte[][] sigma = new byte[][]{
+            {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+            {14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3},
+            {11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4},
+            {7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8},
+            {9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13},
+            {2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9},
+            {12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11},
+            {13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10},
+            {6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5},
+            {10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0}
+    };
+
+    private static final long[] u512 = new long[]{
+            0x243f6a8885a308d3L, 0x13198a2e03707344L, 0xa4093822299f31d0L, 0x082efa98ec4e6c89L,
+            0x452821e638d01377L, 0xbe5466cf34e90c6cL, 0xc0ac29b7c97c50ddL, 0x3f84d5b5b5470917L,
+            0x9216d5d98979fb1bL, 0xd1310ba698dfb5acL, 0x2ffd72dbd01adfb7L, 0xb8e1afed6a267e96L,
+            0xba7c9045f12c7f99L, 0x24a19947b3916cf7L, 0x0801f2e2858efc16L, 0x636920d871574e69L
+    };
+
+    // Blake Initialization Vector, the one of SHA-512:
+    private static final long[] iv = new long[]{
+            0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+            0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
+    };
+
+    private final long[] vectorH = new long[8];
+
+    private final long[] v = new long[16];
+    private final long[] m = new long[16];
+
+    private final byte[] block = new byte[BLOCK_LENGTH];
+
+    private int blockOffset;
+
+    // message bits already compressed, low and high words of the 128 bits counter
+    private long t0;
+    private long t1;
+
+    public Blake512Digest() {
+        reset();
+    }
+
+    public Blake512Digest(Blake512Digest d) {
+        System.arraycopy(d.vectorH, 0, vectorH, 0, vectorH.length);
+        System.arraycopy(d.block, 0, block, 0, block.length);
+        blockOffset = d.blockOffset;
+        t0 = d.t0;
+        t1 = d.t1;
+    }
+
+    @Override
+    public String getAlgorithmName() {
+        return "BLAKE-512";
+    }
+
+    @Override
+    public int getDigestSize() {
+        return DIGEST_LENGTH;
+    }
+
+    @Override
+    public int getByteLength() {
+        return BLOCK_LENGTH;
+    }
+
+    @Override
+    public void update(byte in) {
+        if (blockOffset == BLOCK_LENGTH) {
+            count(BLOCK_LENGTH * 8);
+            compress(false);
+            blockOffset = 0;
+        }
+        block[blockOffset++] = in;
+    }
+
+    /**
+     * update the message digest with a block of bytes.
+     *
+     * @param data  the byte array containing the data.
+     * @param inOff the offset into the byte array where the data starts.
+     * @param len   the length of the data.
+     */
+    @Override
+    public void update(byte[] data, int inOff, int len) {
+        // a full block stays buffered until more data comes, it may be the last one
+        while (len > 0) {
+            if (blockOffset == BLOCK_LENGTH) {
+                count(BLOCK_LENGTH * 8);
+                compress(false);
+                blockOffset = 0;
+            }
+            int n = Math.min(len, BLOCK_LENGTH - blockOffset);
+            System.arraycopy(data, inOff, block, blockOffset, n);
+            blockOffset += n;
+            inOff += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * close the digest, producing the final digest value. The doFinal
+     * call leaves the digest reset.
+     *
+     * @param out    the array the digest is to be copied into.
+     * @param outOff the offset into the out array the digest is to start at.
+     */
+    @Override
+    public int doFinal(byte[] out, int outOff) {
+        count(blockOffset * 8L);
+        long hi = t1;
+        long lo = t0;
+
+        // a block holding no message bit is compressed with a zero counter
+        boolean messageBits = blockOffset > 0;
+        if (blockOffset == BLOCK_LENGTH) {
+            compress(false);
+            blockOffset = 0;
+            messageBits = false;
+        }
+        block[blockOffset++] = (byte) 0x80;
+        if (blockOffset > BLOCK_LENGTH - 16) {
+            fill(BLOCK_LENGTH);
+            compress(!messageBits);
+            blockOffset = 0;
+            messageBits = false;
+        }
+        fill(BLOCK_LENGTH - 16);
+        block[BLOCK_LENGTH - 17] |= 0x01;
+        putLong(hi, block, BLOCK_LENGTH - 16);
+        putLong(lo, block, BLOCK_LENGTH - 8);
+        compress(!messageBits);
+
+        for (int i = 0; i < 8; i++) {
+            putLong(vectorH[i], out, outOff + i * 8);
+        }
+        reset();
+        return DIGEST_LENGTH;
+    }
+
+    /**
+     * reset the digest back to it's initial state.
+     */
+    @Override
+    public void reset() {
+        System.arraycopy(iv, 0, vectorH, 0, 8);
+        blockOffset = 0;
+        t0 = 0;
+        t1 = 0;
+    }
+
+    private void count(long bits) {
+        t0 += bits;
+        if (Long.compareUnsigned(t0, bits) < 0) {
+            t1++;
+        }
+    }
+
+    private void fill(int to) {
+        while (blockOffset < to) {
+            block[blockOffset++] = 0;
+        }
+    }
+
+    private void compress(boolean nullt) {
+        for (int i = 0; i < 16; i++) {
+            m[i] = getLong(block, i * 8);
+        }
+        System.arraycopy(vectorH, 0, v, 0, 8);
+        System.arraycopy(u512, 0, v, 8, 8);
+        if (!nullt) {
+            v[12] ^= t0;
+            v[13] ^= t0;
+            v[14] ^= t1;
+            v[15] ^= t1;
+        }
+
+        for (int i = 0; i < ROUNDS; i++) {
+            byte[] s = sigma[i % 10];
+            /* column step */
+            g(s, 0, 4, 8, 12, 0);
+            g(s, 1, 5, 9, 13, 2);
+            g(s, 2, 6, 10, 14, 4);
+            g(s, 3, 7, 11, 15, 6);
+            /* diagonal step */
+            g(s, 0, 5, 10, 15, 8);
+            g(s, 1, 6, 11, 12, 10);
+            g(s, 2, 7, 8, 13, 12);
+            g(s, 3, 4, 9, 14, 14);
+        }
+
+        for (int i = 0; i < 8; i++) {
+            vectorH[i] ^= v[i] ^ v[i + 8];
+        }
+    }
+
+    private void g(byte[] s, int a, int b, int c, int d, int e) {
+        v[a] += v[b] + (m[s[e]] ^ u512[s[e + 1]]);
+        v[d] = Long.rotateRight(v[d] ^ v[a], 32);
+        v[c] += v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 25);
+        v[a] += v[b] + (m[s[e + 1]] ^ u512[s[e]]);
+        v[d] = Long.rotateRight(v[d] ^ v[a], 16);
+        v[c] += v[d];
+        v[b] = Long.rotateRight(v[b] ^ v[c], 11);
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long r = 0;
+        for (int i = 0; i < 8; i++) {
+            r = (r << 8) | (b[off + i] & 0xFFL);
+        }
+        return r;
+    }
+
+    private static void putLong(long x, byte[] b, int off) {
+        for (int i = 7; i >= 0; i--) {
+            b[off + i] = (byte) x;
+            x >>>= 8;
+        }
+    }
+}
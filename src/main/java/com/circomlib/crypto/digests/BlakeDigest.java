@@ -2,10 +2,6 @@ package com.circomlib.crypto.digests;
 
 import org.bouncycastle.crypto.ExtendedDigest;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
-
 /**
  * BLAKE is a cryptographic hash function based on Daniel J. Bernstein's
  * ChaCha stream cipher, but a permuted copy of the input block, XORed
@@ -13,7 +9,15 @@ import java.util.Arrays;
  */
 public class BlakeDigest implements ExtendedDigest {
 
+    private static final int BLOCK_LENGTH = 64;
+    private static final int DIGEST_LENGTH = 32;
+    
+    /**
+     * @deprecated the compression has the message indices written out and no longer reads this
+     * table, it is kept for subclasses.
+     */
     // Message word permutations:
+    @Deprecated
     protected static byte[][] sigma = new byte[][]{
             {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
             {14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3},
@@ -33,6 +37,10 @@ public class BlakeDigest implements ExtendedDigest {
             {2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9}
     };
 
+    /**
+     * @deprecated doFinal pads the buffered block in place, it is kept for subclasses.
+     */
+    @Deprecated
     protected static final byte[] padding = new byte[]{
             (byte) 0x80, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
             0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
@@ -44,7 +52,6 @@ public class BlakeDigest implements ExtendedDigest {
             0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0
     };
 
-
     private static final int[] u256 = new int[]{
             0x243f6a88, 0x85a308d3, 0x13198a2e, 0x03707344,
             0xa4093822, 0x299f31d0, 0x082efa98, 0xec4e6c89,
@@ -53,39 +60,42 @@ public class BlakeDigest implements ExtendedDigest {
     };
 
     // Blake Initialization Vector:
-    private final int[] vectorH = new int[]{
+    private static final int[] iv = new int[]{
             0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
             0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
     };
 
+    private final static int BLOCK_LENGTH_BYTES = 256;// bytes
 
-    private final int[] s = new int[4];
+    private final int[] vectorH = new int[8];
 
-    private boolean nullt;
+    private final int[] m = new int[16];
 
-    private static final byte[] zo = new byte[]{0x01};
-    private static final byte[] oo = new byte[]{(byte) 0x81};
+    private final int[] v = new int[16];
 
-    protected byte[] block;
+    /**
+     * @deprecated buffered message bytes, subclasses should not depend on it.
+     */
+    @Deprecated
+    protected byte[] block = new byte[BLOCK_LENGTH];
 
+    /**
+     * @deprecated bytes in {@link #block}, subclasses should not depend on it.
+     */
+    @Deprecated
     protected int blockOffset;
 
+    /**
+     * @deprecated message bits already compressed, low and high 32 bits words of the counter,
+     * subclasses should not depend on it.
+     */
+    @Deprecated
     protected long[] length = new long[2];
 
     public BlakeDigest() {
         init();
     }
 
-    protected void lengthCarry(long[] arr) {
-        for (int j = 0; j < arr.length; ++j) {
-            if (arr[j] < 0x0100000000L) {
-                break;
-            }
-            arr[j] -= 0x0100000000L;
-            arr[j + 1] += 1;
-        }
-    }
-
     /**
      * update the message digest with a block of bytes.
      *
@@ -104,22 +114,18 @@ public class BlakeDigest implements ExtendedDigest {
      */
     @Override
     public void update(byte[] data, int inOff, int len) {
-        int offset = 0;
-
-        while (this.blockOffset + len - offset >= block.length) {
-            for (int i = this.blockOffset; i < block.length; ) {
-                block[i++] = data[inOff + offset++];
+        // a full block stays buffered until more data comes, it may be the last one
+        while (len > 0) {
+            if (blockOffset == BLOCK_LENGTH) {
+                count(BLOCK_LENGTH * 8);
+                compress(false);
+                blockOffset = 0;
             }
-
-            this.length[0] += block.length * 8L;
-            this.lengthCarry(this.length);
-
-            this.compress();
-            this.blockOffset = 0;
-        }
-
-        while (offset < len) {
-            block[this.blockOffset++] = data[inOff + offset++];
+            int n = Math.min(len, BLOCK_LENGTH - blockOffset);
+            System.arraycopy(data, inOff, block, blockOffset, n);
+            blockOffset += n;
+            inOff += n;
+            len -= n;
         }
     }
 
@@ -130,15 +136,14 @@ public class BlakeDigest implements ExtendedDigest {
      */
     @Override
     public void update(byte in) {
-        byte[] data = new byte[]{in};
-        update(data, 0, 1);
+        if (blockOffset == BLOCK_LENGTH) {
+            count(BLOCK_LENGTH * 8);
+            compress(false);
+            blockOffset = 0;
+        }
+        block[blockOffset++] = in;
     }
 
-
-    private static int ROUNDS = 12; // to use for Catenas H'
-    private final static int BLOCK_LENGTH_BYTES = 256;// bytes
-
-
     @Override
     public int getByteLength() {
         return BLOCK_LENGTH_BYTES;
@@ -161,10 +166,9 @@ public class BlakeDigest implements ExtendedDigest {
      */
     @Override
     public int getDigestSize() {
-        return 32;
+        return DIGEST_LENGTH;
     }
 
-
     /**
      * close the digest, producing the final digest value. The doFinal
      * call leaves the digest reset.
@@ -174,11 +178,35 @@ public class BlakeDigest implements ExtendedDigest {
      */
     @Override
     public int doFinal(byte[] out, int outOff) {
-        this.padding();
-        byte[] buffer = new byte[32];
-        u32ArrayTo8(vectorH, buffer);
-        System.arraycopy(buffer, 0, out, outOff, 32);
-        return 32;
+        count(blockOffset * 8);
+        int hi = (int) length[1];
+        int lo = (int) length[0];
+
+        // a block holding no message bit is compressed with a zero counter
+        boolean messageBits = blockOffset > 0;
+        if (blockOffset == BLOCK_LENGTH) {
+            compress(false);
+            blockOffset = 0;
+            messageBits = false;
+        }
+        block[blockOffset++] = (byte) 0x80;
+        if (blockOffset > BLOCK_LENGTH - 8) {
+            fill(BLOCK_LENGTH);
+            compress(!messageBits);
+            blockOffset = 0;
+            messageBits = false;
+        }
+        fill(BLOCK_LENGTH - 8);
+        block[BLOCK_LENGTH - 9] |= 0x01;
+        putInt(hi, block, BLOCK_LENGTH - 8);
+        putInt(lo, block, BLOCK_LENGTH - 4);
+        compress(!messageBits);
+
+        for (int i = 0; i < 8; i++) {
+            putInt(vectorH[i], out, outOff + i * 4);
+        }
+        reset();
+        return DIGEST_LENGTH;
     }
 
     /**
@@ -189,180 +217,1166 @@ public class BlakeDigest implements ExtendedDigest {
         init();
     }
 
-
     public void init() {
-        vectorH[0] = 0x6a09e667;
-        vectorH[1] = 0xbb67ae85;
-        vectorH[2] = 0x3c6ef372;
-        vectorH[3] = 0xa54ff53a;
-        vectorH[4] = 0x510e527f;
-        vectorH[5] = 0x9b05688c;
-        vectorH[6] = 0x1f83d9ab;
-        vectorH[7] = 0x5be0cd19;
-        s[0] = s[1] = s[2] = s[3] = 0;
-
-        this.block = new byte[64];
-
-        this.blockOffset = 0;
-        this.length = new long[2];
-
-        nullt = false;
+        System.arraycopy(iv, 0, vectorH, 0, 8);
+        blockOffset = 0;
+        length[0] = 0;
+        length[1] = 0;
     }
 
-    public void compress() {
-        int[] v = new int[16];
-        int[] m = new int[16];
-        int i;
+    private void count(int bits) {
+        length[0] += bits;
+        lengthCarry(length);
+    }
 
-        for (i = 0; i < m.length; i++) {
-            m[i] = u8to32(block, i * 4);
+    /**
+     * @deprecated carry of the low word of {@link #length} into the high one, kept for subclasses.
+     */
+    @Deprecated
+    protected void lengthCarry(long[] arr) {
+        for (int j = 0; j < arr.length; ++j) {
+            if (arr[j] < 0x0100000000L) {
+                break;
+            }
+            arr[j] -= 0x0100000000L;
+            arr[j + 1] += 1;
         }
+    }
 
-        for (i = 0; i < 8; i++) {
-            v[i] = vectorH[i];
+    private void fill(int to) {
+        while (blockOffset < to) {
+            block[blockOffset++] = 0;
         }
+    }
 
-        v[8] = s[0] ^ u256[0];
-        v[9] = s[1] ^ u256[1];
-        v[10] = s[2] ^ u256[2];
-        v[11] = s[3] ^ u256[3];
-        v[12] = u256[4];
-        v[13] = u256[5];
-        v[14] = u256[6];
-        v[15] = u256[7];
-
-        if (!nullt) {
-            v[12] ^= length[0];
-            v[13] ^= length[0];
-            v[14] ^= length[1];
-            v[15] ^= length[1];
-        }
+    /**
+     * @deprecated compresses the buffered block with the current counter, the digest calls it
+     * itself and subclasses should not. Unlike the old compress it has no null counter state : the
+     * counter is always mixed in, doFinal alone compresses the blocks holding no message bit
+     * without it.
+     */
+    @Deprecated
+    public void compress() {
+        compress(false);
+    }
 
-        for (i = 0; i < 14; i++) {
-            /* column step */
-            g(v, m, 0, 4, 8, 12, 0, i);
-            g(v, m, 1, 5, 9, 13, 2, i);
-            g(v, m, 2, 6, 10, 14, 4, i);
-            g(v, m, 3, 7, 11, 15, 6, i);
-            /* diagonal step */
-            g(v, m, 0, 5, 10, 15, 8, i);
-            g(v, m, 1, 6, 11, 12, 10, i);
-            g(v, m, 2, 7, 8, 13, 12, i);
-            g(v, m, 3, 4, 9, 14, 14, i);
+    /**
+     * Compresses the buffered block into vectorH. The 14 rounds are written out with the message
+     * word and the constant of every step, in two methods to stay below the size the JIT compiles.
+     * Both are generated from sigma and u256 by BlakeRoundsTest, which checks they still match.
+     */
+    private void compress(boolean nullt) {
+        int[] m = this.m;
+        int[] v = this.v;
+        for (int i = 0; i < 16; i++) {
+            m[i] = getInt(block, i * 4);
         }
-
-        for (i = 0; i < 16; i++) {
-            vectorH[i % 8] ^= v[i];
+        System.arraycopy(vectorH, 0, v, 0, 8);
+        System.arraycopy(u256, 0, v, 8, 8);
+        if (!nullt) {
+            int lo = (int) length[0];
+            int hi = (int) length[1];
+            v[12] ^= lo;
+            v[13] ^= lo;
+            v[14] ^= hi;
+            v[15] ^= hi;
         }
-
-        for (i = 0; i < 8; i++) {
-            vectorH[i] ^= s[i % 4];
+        firstRounds(v, m);
+        lastRounds(v, m);
+        for (int i = 0; i < 8; i++) {
+            vectorH[i] ^= v[i] ^ v[i + 8];
         }
     }
 
-    // left shift
-    public int rot(int x, int n) {
-        long xl = x & 0x00000000ffffffffL;
-        long r = ((xl << (32 - n)) | ((xl >> (n)))) & 0x00000000ffffffffL;
-        return (int) r;
+    // rounds 0 to 6, the message words and constants of each step written out
+    private static void firstRounds(int[] v, int[] m) {
+        int v0 = v[0];
+        int v1 = v[1];
+        int v2 = v[2];
+        int v3 = v[3];
+        int v4 = v[4];
+        int v5 = v[5];
+        int v6 = v[6];
+        int v7 = v[7];
+        int v8 = v[8];
+        int v9 = v[9];
+        int v10 = v[10];
+        int v11 = v[11];
+        int v12 = v[12];
+        int v13 = v[13];
+        int v14 = v[14];
+        int v15 = v[15];
+        int m0 = m[0];
+        int m1 = m[1];
+        int m2 = m[2];
+        int m3 = m[3];
+        int m4 = m[4];
+        int m5 = m[5];
+        int m6 = m[6];
+        int m7 = m[7];
+        int m8 = m[8];
+        int m9 = m[9];
+        int m10 = m[10];
+        int m11 = m[11];
+        int m12 = m[12];
+        int m13 = m[13];
+        int m14 = m[14];
+        int m15 = m[15];
+
+        // round 0
+        /* column step */
+        v0 += v4 + (m0 ^ 0x85a308d3);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m1 ^ 0x243f6a88);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m2 ^ 0x03707344);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m3 ^ 0x13198a2e);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m4 ^ 0x299f31d0);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m5 ^ 0xa4093822);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m6 ^ 0xec4e6c89);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m7 ^ 0x082efa98);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m8 ^ 0x38d01377);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m9 ^ 0x452821e6);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m10 ^ 0x34e90c6c);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m11 ^ 0xbe5466cf);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m12 ^ 0xc97c50dd);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m13 ^ 0xc0ac29b7);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m14 ^ 0xb5470917);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m15 ^ 0x3f84d5b5);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 1
+        /* column step */
+        v0 += v4 + (m14 ^ 0xbe5466cf);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m10 ^ 0x3f84d5b5);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m4 ^ 0x452821e6);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m8 ^ 0xa4093822);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m9 ^ 0xb5470917);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m15 ^ 0x38d01377);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m13 ^ 0x082efa98);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m6 ^ 0xc97c50dd);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m1 ^ 0xc0ac29b7);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m12 ^ 0x85a308d3);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m0 ^ 0x13198a2e);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m2 ^ 0x243f6a88);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m11 ^ 0xec4e6c89);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m7 ^ 0x34e90c6c);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m5 ^ 0x03707344);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m3 ^ 0x299f31d0);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 2
+        /* column step */
+        v0 += v4 + (m11 ^ 0x452821e6);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m8 ^ 0x34e90c6c);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m12 ^ 0x243f6a88);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m0 ^ 0xc0ac29b7);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m5 ^ 0x13198a2e);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m2 ^ 0x299f31d0);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m15 ^ 0xc97c50dd);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m13 ^ 0xb5470917);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m10 ^ 0x3f84d5b5);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m14 ^ 0xbe5466cf);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m3 ^ 0x082efa98);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m6 ^ 0x03707344);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m7 ^ 0x85a308d3);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m1 ^ 0xec4e6c89);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m9 ^ 0xa4093822);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m4 ^ 0x38d01377);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 3
+        /* column step */
+        v0 += v4 + (m7 ^ 0x38d01377);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m9 ^ 0xec4e6c89);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m3 ^ 0x85a308d3);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m1 ^ 0x03707344);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m13 ^ 0xc0ac29b7);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m12 ^ 0xc97c50dd);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m11 ^ 0x3f84d5b5);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m14 ^ 0x34e90c6c);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m2 ^ 0x082efa98);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m6 ^ 0x13198a2e);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m5 ^ 0xbe5466cf);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m10 ^ 0x299f31d0);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m4 ^ 0x243f6a88);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m0 ^ 0xa4093822);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m15 ^ 0x452821e6);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m8 ^ 0xb5470917);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 4
+        /* column step */
+        v0 += v4 + (m9 ^ 0x243f6a88);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m0 ^ 0x38d01377);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m5 ^ 0xec4e6c89);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m7 ^ 0x299f31d0);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m2 ^ 0xa4093822);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m4 ^ 0x13198a2e);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m10 ^ 0xb5470917);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m15 ^ 0xbe5466cf);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m14 ^ 0x85a308d3);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m1 ^ 0x3f84d5b5);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m11 ^ 0xc0ac29b7);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m12 ^ 0x34e90c6c);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m6 ^ 0x452821e6);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m8 ^ 0x082efa98);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m3 ^ 0xc97c50dd);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m13 ^ 0x03707344);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 5
+        /* column step */
+        v0 += v4 + (m2 ^ 0xc0ac29b7);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m12 ^ 0x13198a2e);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m6 ^ 0xbe5466cf);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m10 ^ 0x082efa98);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m0 ^ 0x34e90c6c);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m11 ^ 0x243f6a88);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m8 ^ 0x03707344);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m3 ^ 0x452821e6);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m4 ^ 0xc97c50dd);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m13 ^ 0xa4093822);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m7 ^ 0x299f31d0);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m5 ^ 0xec4e6c89);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m15 ^ 0x3f84d5b5);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m14 ^ 0xb5470917);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m1 ^ 0x38d01377);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m9 ^ 0x85a308d3);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 6
+        /* column step */
+        v0 += v4 + (m12 ^ 0x299f31d0);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m5 ^ 0xc0ac29b7);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m1 ^ 0xb5470917);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m15 ^ 0x85a308d3);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m14 ^ 0xc97c50dd);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m13 ^ 0x3f84d5b5);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m4 ^ 0xbe5466cf);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m10 ^ 0xa4093822);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m0 ^ 0xec4e6c89);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m7 ^ 0x243f6a88);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m6 ^ 0x03707344);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m3 ^ 0x082efa98);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m9 ^ 0x13198a2e);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m2 ^ 0x38d01377);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m8 ^ 0x34e90c6c);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m11 ^ 0x452821e6);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        v[0] = v0;
+        v[1] = v1;
+        v[2] = v2;
+        v[3] = v3;
+        v[4] = v4;
+        v[5] = v5;
+        v[6] = v6;
+        v[7] = v7;
+        v[8] = v8;
+        v[9] = v9;
+        v[10] = v10;
+        v[11] = v11;
+        v[12] = v12;
+        v[13] = v13;
+        v[14] = v14;
+        v[15] = v15;
     }
 
-    public void g(int[] v, int[] m, int a, int b, int c, int d, int e, int i) {
-
-        long va = ((long) v[a] + ((long) (m[sigma[i][e]] ^ u256[sigma[i][e + 1]]) & 0x00000000ffffffffL) + (long) v[b]) & 0x00000000ffffffffL;
-        v[a] = (int) va;
-
-        v[d] = rot(v[d] ^ v[a], 16);
-
-        long vc = ((long) v[c] + (long) v[d]) & 0x00000000ffffffffL;
-        v[c] = (int) vc;
-
-        v[b] = rot(v[b] ^ v[c], 12);
-
-        va = ((long) v[a] + ((long) (m[sigma[i][e + 1]] ^ u256[sigma[i][e]]) & 0x00000000ffffffffL) + (long) v[b]) & 0x00000000ffffffffL;
-        v[a] = (int) va;
-
-        v[d] = rot(v[d] ^ v[a], 8);
-
-        vc = ((long) v[c] + (long) v[d]) & 0x00000000ffffffffL;
-        v[c] = (int) vc;
-
-        v[b] = rot(v[b] ^ v[c], 7);
+    // rounds 7 to 13, the message words and constants of each step written out
+    private static void lastRounds(int[] v, int[] m) {
+        int v0 = v[0];
+        int v1 = v[1];
+        int v2 = v[2];
+        int v3 = v[3];
+        int v4 = v[4];
+        int v5 = v[5];
+        int v6 = v[6];
+        int v7 = v[7];
+        int v8 = v[8];
+        int v9 = v[9];
+        int v10 = v[10];
+        int v11 = v[11];
+        int v12 = v[12];
+        int v13 = v[13];
+        int v14 = v[14];
+        int v15 = v[15];
+        int m0 = m[0];
+        int m1 = m[1];
+        int m2 = m[2];
+        int m3 = m[3];
+        int m4 = m[4];
+        int m5 = m[5];
+        int m6 = m[6];
+        int m7 = m[7];
+        int m8 = m[8];
+        int m9 = m[9];
+        int m10 = m[10];
+        int m11 = m[11];
+        int m12 = m[12];
+        int m13 = m[13];
+        int m14 = m[14];
+        int m15 = m[15];
+
+        // round 7
+        /* column step */
+        v0 += v4 + (m13 ^ 0x34e90c6c);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m11 ^ 0xc97c50dd);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m7 ^ 0x3f84d5b5);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m14 ^ 0xec4e6c89);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m12 ^ 0x85a308d3);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m1 ^ 0xc0ac29b7);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m3 ^ 0x38d01377);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m9 ^ 0x03707344);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m5 ^ 0x243f6a88);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m0 ^ 0x299f31d0);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m15 ^ 0xa4093822);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m4 ^ 0xb5470917);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m8 ^ 0x082efa98);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m6 ^ 0x452821e6);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m2 ^ 0xbe5466cf);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m10 ^ 0x13198a2e);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 8
+        /* column step */
+        v0 += v4 + (m6 ^ 0xb5470917);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m15 ^ 0x082efa98);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m14 ^ 0x38d01377);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m9 ^ 0x3f84d5b5);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m11 ^ 0x03707344);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m3 ^ 0x34e90c6c);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m0 ^ 0x452821e6);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m8 ^ 0x243f6a88);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m12 ^ 0x13198a2e);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m2 ^ 0xc0ac29b7);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m13 ^ 0xec4e6c89);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m7 ^ 0xc97c50dd);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m1 ^ 0xa4093822);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m4 ^ 0x85a308d3);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m10 ^ 0x299f31d0);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m5 ^ 0xbe5466cf);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 9
+        /* column step */
+        v0 += v4 + (m10 ^ 0x13198a2e);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m2 ^ 0xbe5466cf);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m8 ^ 0xa4093822);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m4 ^ 0x452821e6);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m7 ^ 0x082efa98);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m6 ^ 0xec4e6c89);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m1 ^ 0x299f31d0);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m5 ^ 0x85a308d3);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m15 ^ 0x34e90c6c);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m11 ^ 0xb5470917);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m9 ^ 0x3f84d5b5);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m14 ^ 0x38d01377);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m3 ^ 0xc0ac29b7);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m12 ^ 0x03707344);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m13 ^ 0x243f6a88);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m0 ^ 0xc97c50dd);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 10
+        /* column step */
+        v0 += v4 + (m0 ^ 0x85a308d3);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m1 ^ 0x243f6a88);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m2 ^ 0x03707344);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m3 ^ 0x13198a2e);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m4 ^ 0x299f31d0);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m5 ^ 0xa4093822);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m6 ^ 0xec4e6c89);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m7 ^ 0x082efa98);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m8 ^ 0x38d01377);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m9 ^ 0x452821e6);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m10 ^ 0x34e90c6c);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m11 ^ 0xbe5466cf);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m12 ^ 0xc97c50dd);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m13 ^ 0xc0ac29b7);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m14 ^ 0xb5470917);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m15 ^ 0x3f84d5b5);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 11
+        /* column step */
+        v0 += v4 + (m14 ^ 0xbe5466cf);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m10 ^ 0x3f84d5b5);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m4 ^ 0x452821e6);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m8 ^ 0xa4093822);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m9 ^ 0xb5470917);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m15 ^ 0x38d01377);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m13 ^ 0x082efa98);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m6 ^ 0xc97c50dd);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m1 ^ 0xc0ac29b7);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m12 ^ 0x85a308d3);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m0 ^ 0x13198a2e);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m2 ^ 0x243f6a88);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m11 ^ 0xec4e6c89);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m7 ^ 0x34e90c6c);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m5 ^ 0x03707344);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m3 ^ 0x299f31d0);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 12
+        /* column step */
+        v0 += v4 + (m11 ^ 0x452821e6);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m8 ^ 0x34e90c6c);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m12 ^ 0x243f6a88);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m0 ^ 0xc0ac29b7);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m5 ^ 0x13198a2e);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m2 ^ 0x299f31d0);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m15 ^ 0xc97c50dd);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m13 ^ 0xb5470917);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m10 ^ 0x3f84d5b5);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m14 ^ 0xbe5466cf);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m3 ^ 0x082efa98);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m6 ^ 0x03707344);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m7 ^ 0x85a308d3);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m1 ^ 0xec4e6c89);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m9 ^ 0xa4093822);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m4 ^ 0x38d01377);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        // round 13
+        /* column step */
+        v0 += v4 + (m7 ^ 0x38d01377);
+        v12 = Integer.rotateRight(v12 ^ v0, 16);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 12);
+        v0 += v4 + (m9 ^ 0xec4e6c89);
+        v12 = Integer.rotateRight(v12 ^ v0, 8);
+        v8 += v12;
+        v4 = Integer.rotateRight(v4 ^ v8, 7);
+        v1 += v5 + (m3 ^ 0x85a308d3);
+        v13 = Integer.rotateRight(v13 ^ v1, 16);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 12);
+        v1 += v5 + (m1 ^ 0x03707344);
+        v13 = Integer.rotateRight(v13 ^ v1, 8);
+        v9 += v13;
+        v5 = Integer.rotateRight(v5 ^ v9, 7);
+        v2 += v6 + (m13 ^ 0xc0ac29b7);
+        v14 = Integer.rotateRight(v14 ^ v2, 16);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 12);
+        v2 += v6 + (m12 ^ 0xc97c50dd);
+        v14 = Integer.rotateRight(v14 ^ v2, 8);
+        v10 += v14;
+        v6 = Integer.rotateRight(v6 ^ v10, 7);
+        v3 += v7 + (m11 ^ 0x3f84d5b5);
+        v15 = Integer.rotateRight(v15 ^ v3, 16);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 12);
+        v3 += v7 + (m14 ^ 0x34e90c6c);
+        v15 = Integer.rotateRight(v15 ^ v3, 8);
+        v11 += v15;
+        v7 = Integer.rotateRight(v7 ^ v11, 7);
+        /* diagonal step */
+        v0 += v5 + (m2 ^ 0x082efa98);
+        v15 = Integer.rotateRight(v15 ^ v0, 16);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 12);
+        v0 += v5 + (m6 ^ 0x13198a2e);
+        v15 = Integer.rotateRight(v15 ^ v0, 8);
+        v10 += v15;
+        v5 = Integer.rotateRight(v5 ^ v10, 7);
+        v1 += v6 + (m5 ^ 0xbe5466cf);
+        v12 = Integer.rotateRight(v12 ^ v1, 16);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 12);
+        v1 += v6 + (m10 ^ 0x299f31d0);
+        v12 = Integer.rotateRight(v12 ^ v1, 8);
+        v11 += v12;
+        v6 = Integer.rotateRight(v6 ^ v11, 7);
+        v2 += v7 + (m4 ^ 0x243f6a88);
+        v13 = Integer.rotateRight(v13 ^ v2, 16);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 12);
+        v2 += v7 + (m0 ^ 0xa4093822);
+        v13 = Integer.rotateRight(v13 ^ v2, 8);
+        v8 += v13;
+        v7 = Integer.rotateRight(v7 ^ v8, 7);
+        v3 += v4 + (m15 ^ 0x452821e6);
+        v14 = Integer.rotateRight(v14 ^ v3, 16);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 12);
+        v3 += v4 + (m8 ^ 0xb5470917);
+        v14 = Integer.rotateRight(v14 ^ v3, 8);
+        v9 += v14;
+        v4 = Integer.rotateRight(v4 ^ v9, 7);
+
+        v[0] = v0;
+        v[1] = v1;
+        v[2] = v2;
+        v[3] = v3;
+        v[4] = v4;
+        v[5] = v5;
+        v[6] = v6;
+        v[7] = v7;
+        v[8] = v8;
+        v[9] = v9;
+        v[10] = v10;
+        v[11] = v11;
+        v[12] = v12;
+        v[13] = v13;
+        v[14] = v14;
+        v[15] = v15;
     }
 
-
-    private void padding() {
-        long lo = this.length[0] + this.blockOffset * 8L;
-        long hi = this.length[1];
-        if (lo >= 0x0100000000L) {
-            lo -= 0x0100000000L;
-            hi += 1;
-        }
-
-        byte[] msglen = new byte[8];
-        msglen[0] = u32to8((int) (hi & 0xFFFFFFFFL))[0];
-        msglen[1] = u32to8((int) (hi & 0xFFFFFFFFL))[1];
-        msglen[2] = u32to8((int) (hi & 0xFFFFFFFFL))[2];
-        msglen[3] = u32to8((int) (hi & 0xFFFFFFFFL))[3];
-        msglen[4] = u32to8((int) (lo & 0xFFFFFFFFL))[0];
-        msglen[5] = u32to8((int) (lo & 0xFFFFFFFFL))[1];
-        msglen[6] = u32to8((int) (lo & 0xFFFFFFFFL))[2];
-        msglen[7] = u32to8((int) (lo & 0xFFFFFFFFL))[3];
-
-        if (this.blockOffset == 55) {
-            this.length[0] -= 8;
-            this.update(oo);
-        } else {
-            if (this.blockOffset < 55) {
-                if (this.blockOffset == 0) {
-                    this.nullt = true;
-                }
-                this.length[0] -= (55 - this.blockOffset) * 8L;
-                byte[] paddingSlice = Arrays.copyOfRange(padding, 0, 55 - this.blockOffset);
-                this.update(paddingSlice);
-            } else {
-                this.length[0] -= (64 - this.blockOffset) * 8L;
-                byte[] paddingSlice = Arrays.copyOfRange(padding, 0, 64 - this.blockOffset);
-                this.update(paddingSlice);
-                this.length[0] -= 55 * 8L;
-                paddingSlice = Arrays.copyOfRange(padding, 1, 1 + 55);
-                this.update(paddingSlice);
-                this.nullt = true;
-            }
-
-            this.update(zo);
-            this.length[0] -= 8;
-        }
-
-        this.length[0] -= 64;
-        this.update(msglen);
+    /**
+     * @deprecated right rotation, use {@link Integer#rotateRight(int, int)}.
+     */
+    @Deprecated
+    public int rot(int x, int n) {
+        return Integer.rotateRight(x, n);
     }
 
-    private int u8to32(byte[] v, int index) {
-        byte[] part = new byte[4];
-        System.arraycopy(v, index, part, 0, 4);
-        return ByteBuffer.wrap(part).order(ByteOrder.BIG_ENDIAN).getInt();
+    /**
+     * @deprecated step e of round i on the state v, the compression no longer goes through it.
+     */
+    @Deprecated
+    public void g(int[] v, int[] m, int a, int b, int c, int d, int e, int i) {
+        v[a] += v[b] + (m[sigma[i][e]] ^ u256[sigma[i][e + 1]]);
+        v[d] = Integer.rotateRight(v[d] ^ v[a], 16);
+        v[c] += v[d];
+        v[b] = Integer.rotateRight(v[b] ^ v[c], 12);
+        v[a] += v[b] + (m[sigma[i][e + 1]] ^ u256[sigma[i][e]]);
+        v[d] = Integer.rotateRight(v[d] ^ v[a], 8);
+        v[c] += v[d];
+        v[b] = Integer.rotateRight(v[b] ^ v[c], 7);
     }
 
-    private byte[] u32to8(int v) {
-        byte[] result = new byte[4];
-        result[0] = (byte) ((v & 0xFF000000) >> (8 * 3));
-        result[1] = (byte) ((v & 0x00FF0000) >> (8 * 2));
-        result[2] = (byte) ((v & 0x0000FF00) >> 8);
-        result[3] = (byte) (v & 0x000000FF);
-        return result;
+    private static int getInt(byte[] b, int off) {
+        return (b[off] << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
     }
 
-    private void u32ArrayTo8(int[] source, byte[] out) {
-        if (source.length * 4 != out.length) {
-            throw new IllegalArgumentException("Bad result size");
-        }
-        for (int i = 0; i < source.length; i++) {
-            out[i * 4] = (byte) ((source[i] & 0xFF000000) >> (8 * 3));
-            out[i * 4 + 1] = (byte) ((source[i] & 0x00FF0000) >> (8 * 2));
-            out[i * 4 + 2] = (byte) ((source[i] & 0x0000FF00) >> 8);
-            out[i * 4 + 3] = (byte) (source[i] & 0x000000FF);
-        }
+    private static void putInt(int x, byte[] b, int off) {
+        b[off] = (byte) (x >>> 24);
+        b[off + 1] = (byte) (x >>> 16);
+        b[off + 2] = (byte) (x >>> 8);
+        b[off + 3] = (byte) x;
     }
-
 }
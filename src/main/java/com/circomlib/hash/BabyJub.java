@@ -1,6 +1,10 @@
 package com.circomlib.hash;
 
 import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 public class BabyJub {
 
@@ -10,8 +14,39 @@ public class BabyJub {
     public byte[] half;
     public byte[] pm1d2;
 
-    private final byte[] A;
-    private final byte[] D;
+    private static final Fr A = ExtendedPoint.A;
+    private static final Fr D = ExtendedPoint.D;
+
+    // random subset sums of the batch subgroup check, 2^-64 chance to accept a bad set
+    public static final int SUBGROUP_ROUNDS = 64;
+
+    // smallest set for the batch subgroup check, below it the rounds cost more than checking every point
+    public static final int SUBGROUP_BATCH_MIN = 72;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final int SUBSET_GROUP = 4;
+
+    // points per batch inversion and per task when unpacking
+    private static final int UNPACK_CHUNK = 256;
+
+    // order of the prime subgroup, order / 8
+    static final BigInteger SUB_ORDER = new BigInteger("2736030358979909402780800718157159386076813972158567259200215660948447373041", 10);
+
+    // order of the curve, a multiple of the order of every point
+    static final BigInteger ORDER = SUB_ORDER.shiftLeft(3);
+
+    // (p-1)/2, limit between positive and negative x when packing
+    private static final Fr HALF = Fr.fromBigInteger(Fr.MODULUS.shiftRight(1));
+
+    // generator of the prime subgroup
+    static final Fr BASE8_X = Fr.fromBigInteger(new BigInteger("5299619240641551281634865583518297030282874472190772894086521144482721001553", 10));
+    static final Fr BASE8_Y = Fr.fromBigInteger(new BigInteger("16950150798460657717958625567821834550301663161624707787222815936182638968203", 10));
+
+    // built on first use
+    private static final class Base8Table {
+        static final FixedBaseTable TABLE = new FixedBaseTable(ExtendedPoint.fromAffine(BASE8_X, BASE8_Y), 8);
+    }
 
     public BabyJub() {
         BigInteger order = new BigInteger("21888242871839275222246405745257275088614511777268538073601725287587578984328", 10);
@@ -21,118 +56,396 @@ public class BabyJub {
         this.pm1d2 = ByteArrayOperator.div(ByteArrayOperator.sub(this.p, ByteArrayOperator.e(1)),  ByteArrayOperator.e(2));
 
         this.half = ByteArrayOperator.shiftRight(this.p, 1);
-
-        this.A = new BigInteger("168700", 10).toByteArray();
-        this.D = new BigInteger("168696", 10).toByteArray();
     }
 
 
     public PairByteArray addPoint(PairByteArray a, PairByteArray b) {
-        PairByteArray res = new PairByteArray();
+        Fr x = new Fr();
+        Fr y = new Fr();
+        addPoint(Fr.fromBytes(a.l), Fr.fromBytes(a.r), Fr.fromBytes(b.l), Fr.fromBytes(b.r), x, y);
+        return new PairByteArray(x.toByteArray(), y.toByteArray());
+    }
+
+    /**
+     * Affine addition on field elements, (x3, y3) may be the same instances as the inputs.
+     */
+    public void addPoint(Fr x1, Fr y1, Fr x2, Fr y2, Fr x3, Fr y3) {
+        Fr xNum = new Fr();
+        Fr xDen = new Fr();
+        Fr yNum = new Fr();
+        Fr yDen = new Fr();
+        addPointFraction(x1, y1, x2, y2, xNum, xDen, yNum, yDen);
+
+        // one inversion for both denominators
+        Fr inv = new Fr().mul(xDen, yDen).inverse();
+        x3.mul(xNum, yDen).mul(inv);
+        y3.mul(yNum, xDen).mul(inv);
+    }
+
+    /**
+     * Pairwise sums a[i] + b[i], all the denominators share a single field inversion.
+     */
+    public PairByteArray[] addPoints(PairByteArray[] a, PairByteArray[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Points arrays must have the same length");
+        }
+        int n = a.length;
+        Fr[] num = new Fr[2 * n];
+        Fr[] den = new Fr[2 * n];
+        for (int i = 0; i < n; i++) {
+            num[2 * i] = new Fr();
+            num[2 * i + 1] = new Fr();
+            den[2 * i] = new Fr();
+            den[2 * i + 1] = new Fr();
+            addPointFraction(Fr.fromBytes(a[i].l), Fr.fromBytes(a[i].r), Fr.fromBytes(b[i].l), Fr.fromBytes(b[i].r),
+                    num[2 * i], den[2 * i], num[2 * i + 1], den[2 * i + 1]);
+        }
+        Fr.batchInverse(den);
+
+        PairByteArray[] result = new PairByteArray[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = new PairByteArray(
+                    num[2 * i].mul(den[2 * i]).toByteArray(),
+                    num[2 * i + 1].mul(den[2 * i + 1]).toByteArray());
+        }
+        return result;
+    }
 
+    // numerators and denominators of the affine addition, the outputs must not be the inputs
+    private static void addPointFraction(Fr x1, Fr y1, Fr x2, Fr y2, Fr xNum, Fr xDen, Fr yNum, Fr yDen) {
         /* does the equivalent of:
         res[0] = bigInt((a[0]*b[1] + b[0]*a[1]) *  bigInt(bigInt("1") + d*a[0]*b[0]*a[1]*b[1]).inverse(q)).affine(q);
         res[1] = bigInt((a[1]*b[1] - cta*a[0]*b[0]) * bigInt(bigInt("1") - d*a[0]*b[0]*a[1]*b[1]).inverse(q)).affine(q);
         */
 
-        byte[] beta = ByteArrayOperator.mul(a.l,b.r);
-        byte[] gamma = ByteArrayOperator.mul(a.r,b.l);
-        byte[] delta = ByteArrayOperator.mul(
-                ByteArrayOperator.sub(a.r, ByteArrayOperator.mul(this.A, a.l)),
-                ByteArrayOperator.add(b.l, b.r)
-        );
-        byte[] tau = ByteArrayOperator.mul(beta, gamma);
-        byte[] dtau = ByteArrayOperator.mul(this.D, tau);
+        Fr beta = new Fr().mul(x1, y2);
+        Fr gamma = new Fr().mul(y1, x2);
+        Fr delta = new Fr().mul(A, x1);
+        delta.sub(y1, delta).mul(new Fr().add(x2, y2));
+        Fr dtau = new Fr().mul(beta, gamma).mul(D);
 
-        res.l = ByteArrayOperator.div(
-                ByteArrayOperator.add(beta, gamma),
-                ByteArrayOperator.add(ByteArrayOperator.ONE, dtau)
-        );
+        xNum.add(beta, gamma);
+        xDen.setOne().add(dtau);
 
-        res.r = ByteArrayOperator.div(
-                ByteArrayOperator.add(delta, ByteArrayOperator.sub(ByteArrayOperator.mul(this.A,beta), gamma)),
-                ByteArrayOperator.sub(ByteArrayOperator.ONE, dtau)
-        );
+        yNum.mul(A, beta).sub(gamma).add(delta);
+        yDen.setOne().sub(dtau);
+    }
 
-        return res;
+    public PairByteArray base8() {
+        return new PairByteArray(BASE8_X.toByteArray(), BASE8_Y.toByteArray());
     }
 
-    public PairByteArray mulPointEscalar(PairByteArray base, byte[] e) {
+    /**
+     * e * Base8 from a shared precomputed table, no doubling involved.
+     */
+    public PairByteArray mulBase8(byte[] e) {
+        return Base8Table.TABLE.mul(e);
+    }
 
-        PairByteArray res = new PairByteArray(ByteArrayOperator.e(ByteArrayOperator.ZERO),ByteArrayOperator.e(ByteArrayOperator.ONE));
-        byte[] rem = e;
-        PairByteArray exp = base;
+    ExtendedPoint mulBase8(BigInteger e, ExtendedPoint r) {
+        return Base8Table.TABLE.mul(e, r);
+    }
 
-        while (! ByteArrayOperator.isZero(rem)) {
-            if (ByteArrayOperator.isOdd(rem)) {
-                res = this.addPoint(res, exp);
-            }
-            exp = this.addPoint(exp, exp);
-            rem = ByteArrayOperator.shiftRight(rem, 1);
+    /**
+     * Precomputes the multiples of a point multiplied many times, see {@link FixedBaseTable}.
+     */
+    public FixedBaseTable fixedBase(PairByteArray base, int window) {
+        return new FixedBaseTable(base, window);
+    }
+
+    /**
+     * Sum of e[i] * points[i], see {@link MultiScalarMul}.
+     */
+    public PairByteArray multiScalarMul(PairByteArray[] points, byte[][] e) {
+        return multiScalarMul(points, e, false);
+    }
+
+    /**
+     * Sum of e[i] * points[i], spread over the available cores when parallel is set.
+     */
+    public PairByteArray multiScalarMul(PairByteArray[] points, byte[][] e, boolean parallel) {
+        if (points.length != e.length) {
+            throw new IllegalArgumentException("Points and scalars must have the same length");
+        }
+        ExtendedPoint[] ps = new ExtendedPoint[points.length];
+        BigInteger[] ks = new BigInteger[e.length];
+        for (int i = 0; i < points.length; i++) {
+            ps[i] = ExtendedPoint.fromPair(points[i]);
+            ks[i] = new BigInteger(e[i]);
         }
+        return MultiScalarMul.compute(ps, ks, parallel).toPair();
+    }
 
-        return res;
+    public PairByteArray mulPointEscalar(PairByteArray base, byte[] e) {
+        return new ExtendedPoint().mul(ExtendedPoint.fromPair(base), new BigInteger(e)).toPair();
     }
 
     public boolean inSubgroup(PairByteArray p) {
         if (!this.inCurve(p)) {
             return false;
         }
-        PairByteArray res = this.mulPointEscalar(p, this.subOrder);
-        return (ByteArrayOperator.isZero(res.l) && ByteArrayOperator.eq(res.r, ByteArrayOperator.ONE));
+        return inSubgroup(ExtendedPoint.fromPair(p));
+    }
+
+    // p is assumed on the curve, no normalization needed for the identity test
+    boolean inSubgroup(ExtendedPoint p) {
+        return new ExtendedPoint().mul(p, SUB_ORDER).isIdentity();
+    }
+
+    /**
+     * Curve and subgroup membership of many points, one flag per point.
+     *
+     * A point on the curve is P = G + T with G in the prime subgroup and T in the 8-torsion, and
+     * subOrder * (sum r_i P_i) is the identity when every T_i is. A single random combination is
+     * not enough, whatever the size of the r_i : the T_i live in a group of order 8, so two points
+     * with a torsion of order 2 cancel whenever r_i + r_j is even, and one combination catches a
+     * bad set with probability 1/2 only. The check draws {@link #SUBGROUP_ROUNDS} random subset
+     * sums at once (bit k of a random word per point selects it in sum k), which costs about
+     * N * rounds / 4 additions plus one scalar multiplication per round, and accepts a bad set with
+     * probability at most 2^-rounds. A single multi scalar multiplication with 128 bit coefficients
+     * costs about as much as the subset sums, 38 ms against 32 ms for 1024 points.
+     *
+     * The rounds cost about as much as 64 single checks, and the batch wins from about
+     * {@link #SUBGROUP_BATCH_MIN} points : 35 ms against 39 ms for 80 points, 41 ms against 129 ms
+     * for 256, 64 ms against 403 ms for 1024. When it fails, or for smaller sets, every point is
+     * checked on its own.
+     */
+    public boolean[] inSubgroup(PairByteArray[] points) {
+        ExtendedPoint[] ps = new ExtendedPoint[points.length];
+        boolean[] onCurve = new boolean[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ps[i] = ExtendedPoint.fromPair(points[i]);
+            onCurve[i] = inCurve(ps[i].x, ps[i].y);
+        }
+        return inSubgroup(ps, onCurve, SUBGROUP_ROUNDS, RANDOM);
+    }
+
+    // points normalized, only those flagged on the curve are considered
+    boolean[] inSubgroup(ExtendedPoint[] points, boolean[] onCurve, int rounds, Random rnd) {
+        int n = points.length;
+        boolean[] result = onCurve.clone();
+        int candidates = 0;
+        for (boolean b : onCurve) {
+            candidates += b ? 1 : 0;
+        }
+
+        if (candidates >= Math.max(rounds, SUBGROUP_BATCH_MIN)) {
+            ExtendedPoint[] sums = new ExtendedPoint[rounds];
+            for (int k = 0; k < rounds; k++) {
+                sums[k] = new ExtendedPoint();
+            }
+            int[] idx = new int[candidates];
+            for (int i = 0, c = 0; i < n; i++) {
+                if (onCurve[i]) {
+                    idx[c++] = i;
+                }
+            }
+
+            // candidates go by groups of 4 : their 16 subset sums cost 11 additions, then each
+            // round adds one of them instead of up to 4 points
+            long[][] selection = new long[SUBSET_GROUP][(rounds + 63) / 64];
+            ExtendedPoint[] subsets = new ExtendedPoint[1 << SUBSET_GROUP];
+            subsets[0] = new ExtendedPoint();
+            for (int g = 0; g < candidates; g += SUBSET_GROUP) {
+                int size = Math.min(SUBSET_GROUP, candidates - g);
+                for (int m = 1; m < (1 << size); m++) {
+                    int low = Integer.numberOfTrailingZeros(m);
+                    subsets[m] = new ExtendedPoint().addMixed(subsets[m & (m - 1)], points[idx[g + low]]);
+                }
+                for (int j = 0; j < size; j++) {
+                    for (int w = 0; w < selection[j].length; w++) {
+                        selection[j][w] = rnd.nextLong();
+                    }
+                }
+                for (int k = 0; k < rounds; k++) {
+                    int mask = 0;
+                    for (int j = 0; j < size; j++) {
+                        mask |= (int) ((selection[j][k >>> 6] >>> (k & 63)) & 1) << j;
+                    }
+                    if (mask != 0) {
+                        sums[k].add(sums[k], subsets[mask]);
+                    }
+                }
+            }
+            boolean all = true;
+            for (int k = 0; k < rounds && all; k++) {
+                all = inSubgroup(sums[k]);
+            }
+            if (all) {
+                return result;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (result[i]) {
+                result[i] = inSubgroup(points[i]);
+            }
+        }
+        return result;
     }
 
     public boolean inCurve(PairByteArray p) {
-        byte[] x2 = ByteArrayOperator.square(p.l);
-        byte[] y2 = ByteArrayOperator.square(p.r);
+        return inCurve(Fr.fromBytes(p.l), Fr.fromBytes(p.r));
+    }
 
-        return ByteArrayOperator.eq(
-                ByteArrayOperator.add(ByteArrayOperator.mul(this.A, x2), y2),
-                ByteArrayOperator.add(ByteArrayOperator.ONE, ByteArrayOperator.mul(ByteArrayOperator.mul(x2, y2), this.D)));
+    public boolean inCurve(Fr x, Fr y) {
+        Fr x2 = new Fr().square(x);
+        Fr y2 = new Fr().square(y);
+        Fr left = new Fr().mul(A, x2).add(y2);
+        Fr right = new Fr().mul(x2, y2).mul(D).add(new Fr().setOne());
+        return left.equals(right);
     }
 
 
     public PairByteArray unpackPoint(byte[] buff) {
-        boolean sign = false;
-        PairByteArray p = new PairByteArray();
-        if ((buff[31] & 0x80) != 0) {
-            sign = true;
-            buff[31] = (byte)(buff[31] & 0x7F);
+        PairByteArray[] out = new PairByteArray[1];
+        unpackRange(buff, 0, 0, 1, out, new boolean[1]);
+        return out[0];
+    }
+
+    /**
+     * Unpack many points with a single field inversion, invalid entries are null.
+     */
+    public PairByteArray[] unpackPoints(byte[][] buffs) {
+        int n = buffs.length;
+        byte[] packed = new byte[32 * n];
+        boolean[] complete = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (buffs[i] != null && buffs[i].length >= 32) {
+                System.arraycopy(buffs[i], 0, packed, 32 * i, 32);
+                complete[i] = true;
+            }
         }
+        PairByteArray[] result = new PairByteArray[n];
+        unpackPoints(packed, 0, n, result);
+        for (int i = 0; i < n; i++) {
+            if (!complete[i]) {
+                result[i] = null;
+            }
+        }
+        return result;
+    }
 
-        p.r = ByteArrayOperator.e(ByteArrayOperator.toRprLE(buff, 0));
-        if (ByteArrayOperator.gt(p.r, this.p)) {
-            return null;
+    /**
+     * Unpack count points stored back to back, 32 bytes each, in buff from offset.
+     *
+     * The work is cut in chunks spread over the common ForkJoin pool, each chunk sharing one field
+     * inversion between its points, and the square roots use the precomputed context of the field.
+     * out[i] receives the point or null (out may be null to only validate), the returned flags tell
+     * which points are valid. Nothing is thrown for bad input : invalid encodings, y not below p,
+     * x^2 zero or not a square, or a buffer too short for count points all give a false flag.
+     */
+    public boolean[] unpackPoints(byte[] buff, int offset, int count, PairByteArray[] out) {
+        boolean[] valid = new boolean[Math.max(count, 0)];
+        if (buff == null || offset < 0 || count <= 0) {
+            return valid;
         }
+        int available = (int) Math.min(count, Math.max(0L, (long) buff.length - offset) / 32);
+        int chunks = (available + UNPACK_CHUNK - 1) / UNPACK_CHUNK;
+        IntStream range = IntStream.range(0, chunks);
+        (chunks > 1 ? range.parallel() : range).forEach(c ->
+                unpackRange(buff, offset, c * UNPACK_CHUNK, Math.min(available, (c + 1) * UNPACK_CHUNK), out, valid));
+        return valid;
+    }
 
-        byte[] y2 = ByteArrayOperator.square(p.r);
-        byte[] x2 = ByteArrayOperator.div(
-                ByteArrayOperator.sub(ByteArrayOperator.ONE, y2),
-                ByteArrayOperator.sub(this.A, ByteArrayOperator.mul(this.D, y2))
-        );
+    // points [from, to) of the buffer, with one batch inversion
+    private static void unpackRange(byte[] buff, int offset, int from, int to, PairByteArray[] out, boolean[] valid) {
+        int n = to - from;
+        Fr[] ys = new Fr[n];
+        int[] signs = new int[n];
+        Fr[] num = new Fr[n];
+        Fr[] den = new Fr[n];
+        for (int i = 0; i < n; i++) {
+            ys[i] = new Fr();
+            signs[i] = readPacked(buff, offset + 32 * (from + i), ys[i]);
+            num[i] = new Fr();
+            den[i] = new Fr();
+            x2Fraction(ys[i], num[i], den[i]);
+        }
+        Fr.batchInverse(den);
 
-        byte[] x2h = ByteArrayOperator.exp(x2, this.half);
-        if (! ByteArrayOperator.eq(ByteArrayOperator.ONE, x2h)) {
-            return null;
+        Fr x = new Fr();
+        for (int i = 0; i < n; i++) {
+            if (signs[i] < 0 || !recoverX(num[i].mul(den[i]), signs[i] == 1, x)) {
+                continue;
+            }
+            valid[from + i] = true;
+            if (out != null) {
+                out[from + i] = new PairByteArray(x.toByteArray(), ys[i].toByteArray());
+            }
         }
+    }
 
-        byte[] x;
-        try {
-           x = ByteArrayOperator.sqrt(x2);
-        } catch (Exception e) {
-            return null;
+    // reads y from a packed point and returns the sign bit of x, or -1 when y is not below p
+    private static int readPacked(byte[] buff, int offset, Fr y) {
+        byte[] le = new byte[32];
+        System.arraycopy(buff, offset, le, 0, 32);
+        int sign = (le[31] & 0x80) >>> 7;
+        le[31] = (byte)(le[31] & 0x7F);
+        y.setBytesLE(le, 0);
+
+        // setBytesLE reduces mod p, a non canonical encoding does not survive the round trip
+        byte[] canonical = new byte[32];
+        y.toBytesLE(canonical, 0);
+        if (!Arrays.equals(le, canonical)) {
+            return -1;
         }
+        return sign;
+    }
 
+    // x^2 = (1 - y^2) / (a - d*y^2)
+    private static void x2Fraction(Fr y, Fr num, Fr den) {
+        Fr y2 = new Fr().square(y);
+        num.setOne().sub(y2);
+        den.mul(D, y2);
+        den.sub(A, den);
+    }
+
+    // x from x^2 and the sign bit, false when x^2 is zero or not a square as in circomlibjs
+    private static boolean recoverX(Fr x2, boolean sign, Fr x) {
+        if (x2.isZero() || !x.sqrt(x2)) {
+            return false;
+        }
         if (sign) {
-            x = ByteArrayOperator.neg(x);
+            x.neg();
         }
-        p.l = x;
-        return p;
+        return true;
     }
 
     public byte[] packPoint(PairByteArray p) {
-        byte[] buff = ByteArrayOperator.toRprLE(p.r, 0);
-        if (ByteArrayOperator.gt(p.l, this.pm1d2)) {
+        return packPoint(Fr.fromBytes(p.l), Fr.fromBytes(p.r));
+    }
+
+    /**
+     * Packs a point in extended coordinates, the only inversion of the computation that produced it.
+     */
+    byte[] packPoint(ExtendedPoint p) {
+        Fr x = new Fr();
+        Fr y = new Fr();
+        p.toAffine(x, y);
+        return packPoint(x, y);
+    }
+
+    /**
+     * Packs many points in extended coordinates with a single shared inversion.
+     */
+    byte[][] packPoints(ExtendedPoint[] points) {
+        ExtendedPoint[] affine = new ExtendedPoint[points.length];
+        for (int i = 0; i < points.length; i++) {
+            affine[i] = new ExtendedPoint(points[i]);
+        }
+        ExtendedPoint.normalize(affine);
+        byte[][] result = new byte[points.length][];
+        for (int i = 0; i < points.length; i++) {
+            result[i] = packPoint(affine[i].x, affine[i].y);
+        }
+        return result;
+    }
+
+    private static byte[] packPoint(Fr x, Fr y) {
+        byte[] buff = new byte[32];
+        y.toBytesLE(buff, 0);
+        if (x.compareTo(HALF) > 0) {
             buff[31] = (byte)(buff[31] | 0x80);
         }
         return buff;
@@ -4,77 +4,62 @@ import java.math.BigInteger;
 import java.util.Arrays;
 
 /**
- * byte[] operator. Use only BigInteger for the moment : TODO Need change all BigInteger reference
+ * byte[] operator. Compatibility layer over {@link Fr}, values use the {@link BigInteger#toByteArray()} layout.
  */
 public class ByteArrayOperator {
 
     public static final byte[] ZERO = new byte[32];
     public static final byte[] ONE = new BigInteger("1",10).toByteArray();
 
-    public static final BigInteger maxBig = new BigInteger("21888242871839275222246405745257275088548364400416034343698204186575808495617",10);
+    public static final BigInteger maxBig = Fr.MODULUS;
     public static final BigInteger half = maxBig.shiftRight(1);
 
     public static byte[] mul(byte[] a, byte[] b) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        BigInteger bc = ba.multiply(bb);
-        return e(bc);
+        return Fr.fromBytes(a).mul(Fr.fromBytes(b)).toByteArray();
     }
 
     public static byte[] div(byte[] a, byte[] b) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        BigInteger bc = ba.multiply(bb.modInverse(maxBig));
-        return e(bc);
+        Fr fb = Fr.fromBytes(b);
+        if (fb.isZero()) {
+            throw new ArithmeticException("BigInteger not invertible.");
+        }
+        return Fr.fromBytes(a).mul(fb.inverse()).toByteArray();
     }
 
     public static byte[] square(byte[] a) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bc = ba.multiply(ba);
-        return e(bc);
+        return Fr.fromBytes(a).square().toByteArray();
     }
 
     public static byte[] sqrt(byte[] a) {
-        BigInteger ba = new BigInteger(a);
-        TonelliShanks.Solution s =  TonelliShanks.ts(ba, ByteArrayOperator.maxBig);
-        return s.root1.compareTo(s.root2) < 0 ? s.root1.toByteArray() : s.root2.toByteArray();
+        Fr r = new Fr();
+        // stays zero when there is no root, like the former Tonelli-Shanks path
+        r.sqrt(Fr.fromBytes(a));
+        return r.toByteArray();
     }
 
     public static byte[] add(byte[] a, byte[] b) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        BigInteger bc = ba.add(bb);
-        return e(bc);
+        return Fr.fromBytes(a).add(Fr.fromBytes(b)).toByteArray();
     }
 
     public static byte[] sub(byte[] a, byte[] b) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        BigInteger bc = ba.subtract(bb);
-        return e(bc);
+        return Fr.fromBytes(a).sub(Fr.fromBytes(b)).toByteArray();
     }
 
     public static byte[] add(byte[] a, byte[] b, byte[] c) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        BigInteger bc = new BigInteger(c);
-        BigInteger bd = ba.add(bb).add(bc);
-        return e(bd);
+        return Fr.fromBytes(a).add(Fr.fromBytes(b)).add(Fr.fromBytes(c)).toByteArray();
     }
 
     public static byte[] e(long v) {
-        BigInteger b = new BigInteger(""+v);
-        return e(b);
+        return new Fr(v).toByteArray();
     }
 
     public static byte[] e(byte[] v) {
-        BigInteger b = new BigInteger(v);
         if ((v[0] & 128) == 128) {
             byte[] v2 = new byte[v.length+1];
             System.arraycopy(v, 0, v2, 1, v.length);
-            b = new BigInteger(v2);
+            v = v2;
         }
-        return e(b);
+        return Fr.fromBytes(v).toByteArray();
     }
 
     // Pases a buffer with Little Endian Representation
@@ -96,20 +81,12 @@ public class ByteArrayOperator {
 
 
     public static byte[] e(BigInteger b) {
-        if (b.signum() < 0) {
-            b = b.multiply(new BigInteger("-1"));
-            b = b.mod(maxBig);
-            b = maxBig.subtract(b);
-        } else {
-            b = b.mod(maxBig);
-        }
-        return b.toByteArray();
+        return Fr.fromBigInteger(b).toByteArray();
     }
 
     public static byte[] exp(byte[] a, byte[] b) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        return e(ba.modPow(bb, maxBig));
+        Fr fa = Fr.fromBytes(a);
+        return fa.pow(fa, new BigInteger(b)).toByteArray();
     }
 
 
@@ -124,30 +101,52 @@ public class ByteArrayOperator {
     }
 
     public static byte[] neg(byte[] b1) {
-        BigInteger b = new BigInteger(b1);
-        return e(b.negate());
+        return Fr.fromBytes(b1).neg().toByteArray();
     }
 
     public static boolean isNeg(byte[] b1) {
-        BigInteger b = new BigInteger(b1);
-        return b.signum() < 0;
+        return b1.length > 0 && b1[0] < 0;
     }
 
     public static boolean isZero(byte[] b1) {
-        BigInteger b = new BigInteger(b1);
-        return b.signum() == 0;
+        for (byte b : b1) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public static boolean eq(byte[] a, byte[] b) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        return ba.equals(bb);
+        return compare(a, b) == 0;
     }
 
     public static boolean gt(byte[] a, byte[] b) {
-        BigInteger ba = new BigInteger(a);
-        BigInteger bb = new BigInteger(b);
-        return ba.compareTo(bb) > 0;
+        return compare(a, b) > 0;
+    }
+
+    // Compares two big endian two's complement values without going through BigInteger
+    private static int compare(byte[] a, byte[] b) {
+        int n = Math.max(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int x = byteAt(a, i - (n - a.length));
+            int y = byteAt(b, i - (n - b.length));
+            if (i > 0) {
+                x &= 0xFF;
+                y &= 0xFF;
+            }
+            if (x != y) {
+                return x < y ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int byteAt(byte[] v, int i) {
+        if (i < 0) {
+            return (v.length > 0 && v[0] < 0) ? -1 : 0;
+        }
+        return v[i];
     }
 
     public static boolean isOdd(byte[] b1) {
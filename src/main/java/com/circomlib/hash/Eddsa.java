@@ -0,0 +1,259 @@
+package com.circomlib.hash;
+
+import com.circomlib.provider.digest.Blake512;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * EdDSA over BabyJub, compatible with circomlib for the MiMCSponge and the Pedersen hashes.
+ *
+ * The private key goes through BLAKE-512, the pruned low half gives the secret scalar s and the
+ * public key A = (s >> 3) * Base8, the high half seeds the nonce r. A signature (R8, S) of a
+ * message verifies S * Base8 = R8 + 8 * H(R8, A, msg) * A. Base8 multiplications use the shared
+ * fixed base table of {@link BabyJub}.
+ */
+public class Eddsa {
+
+    // size of the random coefficients of the batch equation, a forgery passes with probability 2^-128
+    private static final int BATCH_COEFFICIENT_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final BabyJub babyJub = new BabyJub();
+    private final Pedersen pedersen = new Pedersen();
+    private final MimcSponge mimcSponge = new MimcSponge();
+    private final Blake512 blake = new Blake512();
+
+    public static class Signature {
+
+        public final PairByteArray r8;
+        public final byte[] s;
+
+        public Signature(PairByteArray r8, byte[] s) {
+            this.r8 = r8;
+            this.s = s;
+        }
+    }
+
+    // H(R8, A, msg) of a flavour
+    private interface Challenge {
+        BigInteger hash(PairByteArray r8, PairByteArray a, byte[] msg);
+    }
+
+    public PairByteArray prv2pub(byte[] prv) {
+        BigInteger s = secretScalar(blake.digest(prv));
+        return babyJub.mulBase8(s.shiftRight(3), new ExtendedPoint()).toPair();
+    }
+
+    /**
+     * Signs arbitrary bytes, the challenge is the Pedersen hash of packed R8, packed A and msg.
+     */
+    public Signature signPedersen(byte[] prv, byte[] msg) {
+        return sign(prv, msg, msg, this::pedersenChallenge);
+    }
+
+    /**
+     * Signs a field element, the challenge is the MiMCSponge hash of R8, A and msg.
+     */
+    public Signature signMiMCSponge(byte[] prv, byte[] msg) {
+        byte[] msgLE = new byte[32];
+        Fr.fromBytes(msg).toBytesLE(msgLE, 0);
+        return sign(prv, msg, msgLE, this::mimcSpongeChallenge);
+    }
+
+    public boolean verifyPedersen(byte[] msg, Signature sig, PairByteArray a) {
+        return verify(msg, sig, a, this::pedersenChallenge);
+    }
+
+    public boolean verifyMiMCSponge(byte[] msg, Signature sig, PairByteArray a) {
+        return verify(msg, sig, a, this::mimcSpongeChallenge);
+    }
+
+    /**
+     * Verifies many Pedersen signatures at once, one flag per signature, see {@link #verifyBatch}.
+     */
+    public boolean[] verifyPedersen(byte[][] msgs, Signature[] sigs, PairByteArray[] as) {
+        return verifyBatch(msgs, sigs, as, this::pedersenChallenge, RANDOM);
+    }
+
+    /**
+     * Verifies many MiMCSponge signatures at once, one flag per signature, see {@link #verifyBatch}.
+     */
+    public boolean[] verifyMiMCSponge(byte[][] msgs, Signature[] sigs, PairByteArray[] as) {
+        return verifyBatch(msgs, sigs, as, this::mimcSpongeChallenge, RANDOM);
+    }
+
+    /**
+     * 64 bytes : packed R8 then S in 32 little endian bytes.
+     */
+    public byte[] packSignature(Signature sig) {
+        byte[] buff = new byte[64];
+        System.arraycopy(babyJub.packPoint(sig.r8), 0, buff, 0, 32);
+        byte[] s = new BigInteger(sig.s).toByteArray();
+        for (int i = 0; i < 32 && i < s.length; i++) {
+            buff[32 + i] = s[s.length - 1 - i];
+        }
+        return buff;
+    }
+
+    /**
+     * Inverse of {@link #packSignature(Signature)}, null when R8 is not a valid packed point.
+     */
+    public Signature unpackSignature(byte[] buff) {
+        byte[] packed = new byte[32];
+        System.arraycopy(buff, 0, packed, 0, 32);
+        PairByteArray r8 = babyJub.unpackPoint(packed);
+        if (r8 == null) {
+            return null;
+        }
+        return new Signature(r8, fromLE(buff, 32, 32).toByteArray());
+    }
+
+    private Signature sign(byte[] prv, byte[] msg, byte[] nonceMsg, Challenge challenge) {
+        byte[] h1 = blake.digest(prv);
+        BigInteger s = secretScalar(h1);
+        PairByteArray a = babyJub.mulBase8(s.shiftRight(3), new ExtendedPoint()).toPair();
+
+        blake.update(h1, 32, 32);
+        blake.update(nonceMsg);
+        BigInteger r = fromLE(blake.digest(), 0, 64).mod(BabyJub.SUB_ORDER);
+        PairByteArray r8 = babyJub.mulBase8(r, new ExtendedPoint()).toPair();
+
+        BigInteger hm = challenge.hash(r8, a, msg);
+        BigInteger bigS = r.add(hm.multiply(s)).mod(BabyJub.SUB_ORDER);
+        return new Signature(r8, bigS.toByteArray());
+    }
+
+    private boolean verify(byte[] msg, Signature sig, PairByteArray a, Challenge challenge) {
+        BigInteger s = wellFormed(sig, a);
+        if (s == null) {
+            return false;
+        }
+        return verify(ExtendedPoint.fromPair(sig.r8), ExtendedPoint.fromPair(a), s, challenge.hash(sig.r8, a, msg));
+    }
+
+    // S * Base8 = R8 + 8 * hm * A
+    private boolean verify(ExtendedPoint r8, ExtendedPoint a, BigInteger s, BigInteger hm) {
+        ExtendedPoint left = babyJub.mulBase8(s, new ExtendedPoint());
+        ExtendedPoint right = new ExtendedPoint().mul(a, hm.shiftLeft(3));
+        right.add(right, r8);
+        return left.equals(right);
+    }
+
+    /**
+     * Checks all the signatures with a single multi scalar multiplication : with random z_i,
+     * (sum z_i * S_i) * Base8 - sum z_i * R8_i - sum 8 * z_i * hm_i * A_i is the identity when
+     * every signature verifies, and otherwise with probability 2^-128 at most.
+     *
+     * The combination does not see a low order component of R8 for about half of the z_i, while
+     * a single verification always rejects it, so the R8 points go through the batched subgroup
+     * check first. If the equation does not hold the signatures are verified one by one.
+     */
+    boolean[] verifyBatch(byte[][] msgs, Signature[] sigs, PairByteArray[] as, Challenge challenge, Random rnd) {
+        if (msgs.length != sigs.length || sigs.length != as.length) {
+            throw new IllegalArgumentException("Messages, signatures and keys must have the same length");
+        }
+        int n = sigs.length;
+        boolean[] result = new boolean[n];
+        BigInteger[] s = new BigInteger[n];
+        ExtendedPoint[] r8 = new ExtendedPoint[n];
+        int candidates = 0;
+        for (int i = 0; i < n; i++) {
+            s[i] = wellFormed(sigs[i], as[i]);
+            result[i] = s[i] != null;
+            r8[i] = result[i] ? ExtendedPoint.fromPair(sigs[i].r8) : new ExtendedPoint();
+            candidates += result[i] ? 1 : 0;
+        }
+
+        BigInteger[] hm = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            if (result[i]) {
+                hm[i] = challenge.hash(sigs[i].r8, as[i], msgs[i]);
+            }
+        }
+
+        // few signatures do not pay for the subgroup rounds
+        if (candidates >= BabyJub.SUBGROUP_BATCH_MIN) {
+            result = babyJub.inSubgroup(r8, result, BabyJub.SUBGROUP_ROUNDS, rnd);
+            candidates = 0;
+            for (boolean b : result) {
+                candidates += b ? 1 : 0;
+            }
+
+            ExtendedPoint[] points = new ExtendedPoint[2 * candidates];
+            BigInteger[] scalars = new BigInteger[2 * candidates];
+            BigInteger sumS = BigInteger.ZERO;
+            for (int i = 0, c = 0; i < n; i++) {
+                if (!result[i]) {
+                    continue;
+                }
+                BigInteger z = new BigInteger(BATCH_COEFFICIENT_BITS, rnd).setBit(0);
+                sumS = sumS.add(z.multiply(s[i]));
+                points[c] = r8[i];
+                scalars[c++] = z.negate();
+                points[c] = ExtendedPoint.fromPair(as[i]);
+                scalars[c++] = z.multiply(hm[i]).mod(BabyJub.SUB_ORDER).shiftLeft(3).negate();
+            }
+            ExtendedPoint sum = MultiScalarMul.compute(points, scalars, true);
+            sum.add(sum, babyJub.mulBase8(sumS.mod(BabyJub.SUB_ORDER), new ExtendedPoint()));
+            if (sum.isIdentity()) {
+                return result;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (result[i]) {
+                result[i] = verify(r8[i], ExtendedPoint.fromPair(as[i]), s[i], hm[i]);
+            }
+        }
+        return result;
+    }
+
+    // S as an integer when it is reduced and both points are on the curve, null otherwise
+    private BigInteger wellFormed(Signature sig, PairByteArray a) {
+        if (sig == null || sig.r8 == null || sig.s == null || a == null) {
+            return null;
+        }
+        if (!babyJub.inCurve(sig.r8) || !babyJub.inCurve(a)) {
+            return null;
+        }
+        BigInteger s = new BigInteger(sig.s);
+        if (s.signum() < 0 || s.compareTo(BabyJub.SUB_ORDER) >= 0) {
+            return null;
+        }
+        return s;
+    }
+
+    private BigInteger pedersenChallenge(PairByteArray r8, PairByteArray a, byte[] msg) {
+        byte[] buff = new byte[64 + msg.length];
+        System.arraycopy(babyJub.packPoint(r8), 0, buff, 0, 32);
+        System.arraycopy(babyJub.packPoint(a), 0, buff, 32, 32);
+        System.arraycopy(msg, 0, buff, 64, msg.length);
+        return fromLE(pedersen.hash(buff), 0, 32);
+    }
+
+    private BigInteger mimcSpongeChallenge(PairByteArray r8, PairByteArray a, byte[] msg) {
+        byte[][] input = new byte[][]{r8.l, r8.r, a.l, a.r, msg};
+        return new BigInteger(mimcSponge.multiHash(input)[0]);
+    }
+
+    // pruned low half of the key hash, a multiple of 8 with bit 254 set
+    private static BigInteger secretScalar(byte[] h1) {
+        byte[] low = new byte[32];
+        System.arraycopy(h1, 0, low, 0, 32);
+        low[0] = (byte) (low[0] & 0xF8);
+        low[31] = (byte) (low[31] & 0x7F);
+        low[31] = (byte) (low[31] | 0x40);
+        return fromLE(low, 0, 32);
+    }
+
+    private static BigInteger fromLE(byte[] b, int offset, int len) {
+        byte[] be = new byte[len];
+        for (int i = 0; i < len; i++) {
+            be[i] = b[offset + len - 1 - i];
+        }
+        return new BigInteger(1, be);
+    }
+}
@@ -0,0 +1,238 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+
+/**
+ * BabyJub point in extended twisted Edwards coordinates (X:Y:T:Z), x = X/Z, y = Y/Z and x*y = T/Z.
+ *
+ * Additions and doublings need no inversion (Hisil, Wong, Carter, Dawson 2008), a point only goes
+ * back to affine coordinates once, when it leaves this representation. The addition is unified and,
+ * since a is a square and d is not, complete : it is valid for doubling and for the identity too.
+ *
+ * Like {@link Fr}, operations write into the receiver and return it, the receiver may be an operand.
+ */
+final class ExtendedPoint {
+
+    static final Fr A = new Fr(168700);
+    static final Fr D = new Fr(168696);
+
+    // NAF width of the variable base multiplication, 2^(w-2) precomputed odd multiples
+    static final int WNAF_WIDTH = 5;
+
+    final Fr x = new Fr();
+    final Fr y = new Fr().setOne();
+    final Fr t = new Fr();
+    final Fr z = new Fr().setOne();
+
+    ExtendedPoint() {
+    }
+
+    ExtendedPoint(ExtendedPoint p) {
+        set(p);
+    }
+
+    static ExtendedPoint fromAffine(Fr x, Fr y) {
+        return new ExtendedPoint().setAffine(x, y);
+    }
+
+    static ExtendedPoint fromPair(PairByteArray p) {
+        return fromAffine(Fr.fromBytes(p.l), Fr.fromBytes(p.r));
+    }
+
+    ExtendedPoint setAffine(Fr ax, Fr ay) {
+        x.set(ax);
+        y.set(ay);
+        t.mul(ax, ay);
+        z.setOne();
+        return this;
+    }
+
+    ExtendedPoint setIdentity() {
+        x.setZero();
+        y.setOne();
+        t.setZero();
+        z.setOne();
+        return this;
+    }
+
+    ExtendedPoint set(ExtendedPoint p) {
+        x.set(p.x);
+        y.set(p.y);
+        t.set(p.t);
+        z.set(p.z);
+        return this;
+    }
+
+    /**
+     * this = p + q, unified formula add-2008-hwcd, 9 multiplications and 2 by the curve constants.
+     */
+    ExtendedPoint add(ExtendedPoint p, ExtendedPoint q) {
+        Fr c = new Fr().mul(p.t, q.t).mul(D);
+        Fr dd = new Fr().mul(p.z, q.z);
+        return addWith(p, q, c, dd);
+    }
+
+    /**
+     * this = p + q with q normalized (Z = 1), saves the Z1*Z2 multiplication (madd-2008-hwcd).
+     */
+    ExtendedPoint addMixed(ExtendedPoint p, ExtendedPoint q) {
+        Fr c = new Fr().mul(p.t, q.t).mul(D);
+        Fr dd = new Fr(p.z);
+        return addWith(p, q, c, dd);
+    }
+
+    // shared tail of the additions, c = d*T1*T2 and dd = Z1*Z2
+    private ExtendedPoint addWith(ExtendedPoint p, ExtendedPoint q, Fr c, Fr dd) {
+        Fr aa = new Fr().mul(p.x, q.x);
+        Fr bb = new Fr().mul(p.y, q.y);
+        Fr e = new Fr().add(p.x, p.y).mul(new Fr().add(q.x, q.y)).sub(aa).sub(bb);
+        Fr f = new Fr().sub(dd, c);
+        Fr g = new Fr().add(dd, c);
+        Fr h = aa.mul(A, aa).sub(bb, aa);
+        x.mul(e, f);
+        y.mul(g, h);
+        t.mul(e, h);
+        z.mul(f, g);
+        return this;
+    }
+
+    /**
+     * this = 2p, dedicated doubling dbl-2008-hwcd, 4 multiplications, 4 squarings and 1 by a.
+     */
+    ExtendedPoint dbl(ExtendedPoint p) {
+        Fr aa = new Fr().square(p.x);
+        Fr bb = new Fr().square(p.y);
+        Fr c = new Fr().square(p.z).dbl();
+        Fr e = new Fr().add(p.x, p.y).square().sub(aa).sub(bb);
+        Fr dd = aa.mul(A, aa);
+        Fr g = new Fr().add(dd, bb);
+        Fr f = c.sub(g, c);
+        Fr h = dd.sub(dd, bb);
+        x.mul(e, f);
+        y.mul(g, h);
+        t.mul(e, h);
+        z.mul(f, g);
+        return this;
+    }
+
+    ExtendedPoint neg(ExtendedPoint p) {
+        x.neg(p.x);
+        y.set(p.y);
+        t.neg(p.t);
+        z.set(p.z);
+        return this;
+    }
+
+    /**
+     * this = k*p with a width 5 NAF : odd multiples up to 15p are precomputed, then each non zero
+     * digit costs one addition of a table entry or of its negation, about one every six bits.
+     * A negative k multiplies -p.
+     */
+    ExtendedPoint mul(ExtendedPoint p, BigInteger k) {
+        return mul(p, k, WNAF_WIDTH);
+    }
+
+    ExtendedPoint mul(ExtendedPoint p, BigInteger k, int w) {
+        boolean negate = k.signum() < 0;
+        if (negate) {
+            k = k.negate();
+        }
+
+        // odd[i] = (2i + 1) * p
+        ExtendedPoint[] odd = new ExtendedPoint[1 << (w - 2)];
+        odd[0] = new ExtendedPoint(p);
+        ExtendedPoint twice = new ExtendedPoint().dbl(p);
+        for (int i = 1; i < odd.length; i++) {
+            odd[i] = new ExtendedPoint().add(odd[i - 1], twice);
+        }
+
+        int[] digits = ScalarRecoding.wnaf(ScalarRecoding.limbs(k), k.bitLength(), w);
+        int top = digits.length - 1;
+        while (top >= 0 && digits[top] == 0) {
+            top--;
+        }
+        ExtendedPoint neg = new ExtendedPoint();
+        setIdentity();
+        for (int i = top; i >= 0; i--) {
+            dbl(this);
+            int d = digits[i];
+            if (d > 0) {
+                add(this, odd[d >> 1]);
+            } else if (d < 0) {
+                add(this, neg.neg(odd[-d >> 1]));
+            }
+        }
+        if (negate) {
+            neg(this);
+        }
+        return this;
+    }
+
+    boolean isIdentity() {
+        return x.isZero() && y.equals(z);
+    }
+
+    /**
+     * Affine coordinates, a single inversion.
+     */
+    void toAffine(Fr ax, Fr ay) {
+        Fr inv = new Fr().inverse(z);
+        ax.mul(x, inv);
+        ay.mul(y, inv);
+    }
+
+    /**
+     * Scales the point back to Z = 1.
+     */
+    ExtendedPoint normalize() {
+        Fr inv = new Fr().inverse(z);
+        x.mul(inv);
+        y.mul(inv);
+        t.mul(x, y);
+        z.setOne();
+        return this;
+    }
+
+    /**
+     * Scales all the points back to Z = 1 with a single shared inversion.
+     */
+    static void normalize(ExtendedPoint[] points) {
+        Fr[] inv = new Fr[points.length];
+        for (int i = 0; i < points.length; i++) {
+            inv[i] = new Fr(points[i].z);
+        }
+        Fr.batchInverse(inv);
+        for (int i = 0; i < points.length; i++) {
+            ExtendedPoint p = points[i];
+            p.x.mul(inv[i]);
+            p.y.mul(inv[i]);
+            p.t.mul(p.x, p.y);
+            p.z.setOne();
+        }
+    }
+
+    PairByteArray toPair() {
+        Fr ax = new Fr();
+        Fr ay = new Fr();
+        toAffine(ax, ay);
+        return new PairByteArray(ax.toByteArray(), ay.toByteArray());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ExtendedPoint)) {
+            return false;
+        }
+        ExtendedPoint q = (ExtendedPoint) o;
+        return new Fr().mul(x, q.z).equals(new Fr().mul(q.x, z))
+                && new Fr().mul(y, q.z).equals(new Fr().mul(q.y, z));
+    }
+
+    @Override
+    public int hashCode() {
+        Fr ax = new Fr();
+        Fr ay = new Fr();
+        toAffine(ax, ay);
+        return 31 * ax.hashCode() + ay.hashCode();
+    }
+}
@@ -0,0 +1,94 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+
+/**
+ * Precomputed multiples of a fixed BabyJub point for scalar multiplication without doublings.
+ *
+ * The scalar is cut in signed windows of w bits, k = sum d_i 2^(w*i) with |d_i| <= 2^(w-1), and
+ * the table holds j * 2^(w*i) * B for every window i and 1 <= j <= 2^(w-1) in affine form.
+ * A multiplication is then one lookup and one mixed addition per window, negative digits use the
+ * free negation of Edwards points. Larger windows mean fewer additions for a table growing as
+ * 2^(w-1) / w : 64 additions and 520 points for w = 4, 32 additions and 4224 points for w = 8.
+ *
+ * Tables are immutable once built and can be shared between threads.
+ */
+public final class FixedBaseTable {
+
+    public static final int DEFAULT_WINDOW = 4;
+
+    // scalars up to this size, larger ones are reduced by the curve order, valid for any base point
+    private static final int MAX_BITS = 256;
+
+    public final int window;
+
+    private final int nWindows;
+
+    // table[i][j - 1] = j * 2^(w*i) * B, Z = 1
+    private final ExtendedPoint[][] table;
+
+    public FixedBaseTable(PairByteArray base) {
+        this(base, DEFAULT_WINDOW);
+    }
+
+    public FixedBaseTable(PairByteArray base, int window) {
+        this(ExtendedPoint.fromPair(base), window);
+    }
+
+    FixedBaseTable(ExtendedPoint base, int window) {
+        if (window < 2 || window > 16) {
+            throw new IllegalArgumentException("window must be between 2 and 16");
+        }
+        this.window = window;
+        this.nWindows = ScalarRecoding.signedWindowCount(MAX_BITS, window);
+        int size = 1 << (window - 1);
+        this.table = new ExtendedPoint[nWindows][size];
+
+        ExtendedPoint[] all = new ExtendedPoint[nWindows * size];
+        ExtendedPoint b = new ExtendedPoint(base);
+        for (int i = 0; i < nWindows; i++) {
+            table[i][0] = new ExtendedPoint(b);
+            for (int j = 1; j < size; j++) {
+                table[i][j] = new ExtendedPoint().add(table[i][j - 1], b);
+            }
+            System.arraycopy(table[i], 0, all, i * size, size);
+            for (int s = 0; s < window; s++) {
+                b.dbl(b);
+            }
+        }
+        ExtendedPoint.normalize(all);
+    }
+
+    public PairByteArray mul(byte[] e) {
+        return mul(new BigInteger(e), new ExtendedPoint()).toPair();
+    }
+
+    /**
+     * r = k * B, a negative k multiplies -B.
+     */
+    ExtendedPoint mul(BigInteger k, ExtendedPoint r) {
+        boolean negate = k.signum() < 0;
+        if (negate) {
+            k = k.negate();
+        }
+        if (k.bitLength() > MAX_BITS) {
+            k = k.mod(BabyJub.ORDER);
+        }
+        int[] digits = ScalarRecoding.signedWindows(ScalarRecoding.limbs(k), window, nWindows);
+
+        ExtendedPoint neg = new ExtendedPoint();
+        r.setIdentity();
+        for (int i = 0; i < nWindows; i++) {
+            int d = digits[i];
+            if (d > 0) {
+                r.addMixed(r, table[i][d - 1]);
+            } else if (d < 0) {
+                r.addMixed(r, neg.neg(table[i][-d - 1]));
+            }
+        }
+        if (negate) {
+            r.neg(r);
+        }
+        return r;
+    }
+}
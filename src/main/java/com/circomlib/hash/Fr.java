@@ -0,0 +1,460 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Element of the BN254 scalar field, the field BabyJub coordinates live in.
+ *
+ * The value is stored in Montgomery form in four 64 bits limbs (little endian).
+ * Every operation writes its result into the receiver and returns it, without any allocation,
+ * so an element can be used as its own destination : {@code x.mul(x, y)} computes x = x*y.
+ */
+public final class Fr {
+
+    public static final BigInteger MODULUS = new BigInteger("21888242871839275222246405745257275088548364400416034343698204186575808495617", 10);
+
+    // shared multiplication engine, the values below are the ones it derives for this modulus
+    static final Montgomery ENGINE = Montgomery.of(MODULUS);
+
+    private static final SqrtContext SQRT = SqrtContext.of(MODULUS);
+
+    // modulus limbs
+    static final long P0 = 0x43e1f593f0000001L;
+    static final long P1 = 0x2833e84879b97091L;
+    static final long P2 = 0xb85045b68181585dL;
+    static final long P3 = 0x30644e72e131a029L;
+
+    // R = 2^256 mod p (Montgomery form of 1)
+    private static final long[] R = {0xac96341c4ffffffbL, 0x36fc76959f60cd29L, 0x666ea36f7879462eL, 0x0e0a77c19a07df2fL};
+
+    // R^2 mod p, used to enter the Montgomery domain
+    private static final long[] R2 = {0x1bb8e645ae216da7L, 0x53fe3ab1e35c59e3L, 0x8c49833d53bb8085L, 0x0216d0b17f4e44a5L};
+
+    private static final long[] ONE_LIMBS = {1, 0, 0, 0};
+
+    final long[] v = new long[4];
+
+    public Fr() {
+    }
+
+    public Fr(long x) {
+        set(x);
+    }
+
+    public Fr(Fr a) {
+        set(a);
+    }
+
+    public static Fr fromBigInteger(BigInteger b) {
+        return new Fr().set(b);
+    }
+
+    /**
+     * Read a value with the {@link BigInteger#toByteArray()} layout (big endian, two's complement).
+     */
+    public static Fr fromBytes(byte[] b) {
+        return new Fr().setBytes(b);
+    }
+
+    public Fr set(Fr a) {
+        v[0] = a.v[0];
+        v[1] = a.v[1];
+        v[2] = a.v[2];
+        v[3] = a.v[3];
+        return this;
+    }
+
+    public Fr setZero() {
+        v[0] = v[1] = v[2] = v[3] = 0;
+        return this;
+    }
+
+    public Fr setOne() {
+        v[0] = R[0];
+        v[1] = R[1];
+        v[2] = R[2];
+        v[3] = R[3];
+        return this;
+    }
+
+    public Fr set(long x) {
+        if (x < 0) {
+            return set(BigInteger.valueOf(x));
+        }
+        v[0] = x;
+        v[1] = v[2] = v[3] = 0;
+        mul(v, R2, v);
+        return this;
+    }
+
+    public Fr set(BigInteger b) {
+        BigInteger m = b.mod(MODULUS);
+        long[] t = v;
+        t[0] = m.longValue();
+        t[1] = m.shiftRight(64).longValue();
+        t[2] = m.shiftRight(128).longValue();
+        t[3] = m.shiftRight(192).longValue();
+        mul(t, R2, t);
+        return this;
+    }
+
+    /**
+     * Set the value from a {@link BigInteger#toByteArray()} layout, reduced modulo p.
+     */
+    public Fr setBytes(byte[] b) {
+        int off = 0;
+        while (off < b.length - 1 && b[off] == 0) {
+            off++;
+        }
+        if (b.length == 0 || b[0] < 0 || b.length - off > 32) {
+            return set(new BigInteger(b));
+        }
+        v[0] = v[1] = v[2] = v[3] = 0;
+        for (int i = b.length - 1, shift = 0; i >= off; i--, shift += 8) {
+            v[shift >>> 6] |= (b[i] & 0xFFL) << (shift & 63);
+        }
+        // 2^256 < 6p
+        while (geqModulus(v)) {
+            subModulus(v);
+        }
+        mul(v, R2, v);
+        return this;
+    }
+
+    /**
+     * Set the value from 32 little endian bytes, reduced modulo p.
+     */
+    public Fr setBytesLE(byte[] b, int offset) {
+        v[0] = v[1] = v[2] = v[3] = 0;
+        for (int i = 0; i < 32; i++) {
+            v[i >>> 3] |= (b[offset + i] & 0xFFL) << ((i & 7) * 8);
+        }
+        while (geqModulus(v)) {
+            subModulus(v);
+        }
+        mul(v, R2, v);
+        return this;
+    }
+
+    public Fr add(Fr a, Fr b) {
+        long[] x = a.v, y = b.v;
+        long s0 = x[0] + y[0];
+        long c = carry(x[0], y[0], s0);
+        long s1 = x[1] + y[1] + c;
+        c = carry(x[1], y[1], s1);
+        long s2 = x[2] + y[2] + c;
+        c = carry(x[2], y[2], s2);
+        long s3 = x[3] + y[3] + c;
+        v[0] = s0;
+        v[1] = s1;
+        v[2] = s2;
+        v[3] = s3;
+        if (geqModulus(v)) {
+            subModulus(v);
+        }
+        return this;
+    }
+
+    public Fr sub(Fr a, Fr b) {
+        long[] x = a.v, y = b.v;
+        long d0 = x[0] - y[0];
+        long br = borrow(x[0], y[0], d0);
+        long d1 = x[1] - y[1] - br;
+        br = borrow(x[1], y[1], d1);
+        long d2 = x[2] - y[2] - br;
+        br = borrow(x[2], y[2], d2);
+        long d3 = x[3] - y[3] - br;
+        br = borrow(x[3], y[3], d3);
+        if (br != 0) {
+            long s0 = d0 + P0;
+            long c = carry(d0, P0, s0);
+            long s1 = d1 + P1 + c;
+            c = carry(d1, P1, s1);
+            long s2 = d2 + P2 + c;
+            c = carry(d2, P2, s2);
+            d3 = d3 + P3 + c;
+            d0 = s0;
+            d1 = s1;
+            d2 = s2;
+        }
+        v[0] = d0;
+        v[1] = d1;
+        v[2] = d2;
+        v[3] = d3;
+        return this;
+    }
+
+    public Fr neg(Fr a) {
+        if (a.isZero()) {
+            return setZero();
+        }
+        long[] x = a.v;
+        long d0 = P0 - x[0];
+        long br = borrow(P0, x[0], d0);
+        long d1 = P1 - x[1] - br;
+        br = borrow(P1, x[1], d1);
+        long d2 = P2 - x[2] - br;
+        br = borrow(P2, x[2], d2);
+        v[3] = P3 - x[3] - br;
+        v[0] = d0;
+        v[1] = d1;
+        v[2] = d2;
+        return this;
+    }
+
+    public Fr mul(Fr a, Fr b) {
+        mul(a.v, b.v, v);
+        return this;
+    }
+
+    public Fr square(Fr a) {
+        mul(a.v, a.v, v);
+        return this;
+    }
+
+    public Fr dbl(Fr a) {
+        return add(a, a);
+    }
+
+    /**
+     * this = a^-1, zero is mapped to zero. Runs in constant time (safegcd divsteps).
+     */
+    public Fr inverse(Fr a) {
+        ENGINE.inverse(a.v, v);
+        return this;
+    }
+
+    /**
+     * Invert all the values with a single inversion (Montgomery's trick), about 3N multiplications.
+     * Zeros are left as zeros and do not spoil the other entries. out may be the same array as in.
+     */
+    public static void batchInverse(Fr[] in, Fr[] out) {
+        int n = in.length;
+        Fr[] prefix = new Fr[n];
+        Fr acc = new Fr().setOne();
+        for (int i = 0; i < n; i++) {
+            prefix[i] = new Fr(acc);
+            if (!in[i].isZero()) {
+                acc.mul(in[i]);
+            }
+        }
+        acc.inverse();
+        Fr t = new Fr();
+        for (int i = n - 1; i >= 0; i--) {
+            if (in[i].isZero()) {
+                out[i].setZero();
+                continue;
+            }
+            t.mul(acc, prefix[i]);
+            acc.mul(in[i]);
+            out[i].set(t);
+        }
+    }
+
+    public static void batchInverse(Fr[] values) {
+        batchInverse(values, values);
+    }
+
+    public Fr div(Fr a, Fr b) {
+        Fr t = new Fr().inverse(b);
+        return mul(a, t);
+    }
+
+    /**
+     * this = smallest square root of a. Returns false, leaving this unchanged, when a is not a square.
+     */
+    public boolean sqrt(Fr a) {
+        return SQRT.sqrt(a.v, v);
+    }
+
+    /**
+     * Legendre symbol : 1 for a non zero square, -1 for a non square, 0 for zero.
+     */
+    public int legendre() {
+        return ENGINE.legendre(v);
+    }
+
+    public Fr pow(Fr a, BigInteger e) {
+        if (e.signum() < 0) {
+            return pow(new Fr().inverse(a), e.negate());
+        }
+        return pow(a, e.toByteArray());
+    }
+
+    private Fr pow(Fr a, byte[] e) {
+        long[] x = a.v.clone();
+        long[] r = R.clone();
+        for (int i = 0; i < e.length; i++) {
+            for (int bit = 7; bit >= 0; bit--) {
+                mul(r, r, r);
+                if (((e[i] >> bit) & 1) == 1) {
+                    mul(r, x, r);
+                }
+            }
+        }
+        System.arraycopy(r, 0, v, 0, 4);
+        return this;
+    }
+
+    // in place variants
+
+    public Fr add(Fr b) {
+        return add(this, b);
+    }
+
+    public Fr sub(Fr b) {
+        return sub(this, b);
+    }
+
+    public Fr mul(Fr b) {
+        return mul(this, b);
+    }
+
+    public Fr square() {
+        return square(this);
+    }
+
+    public Fr dbl() {
+        return dbl(this);
+    }
+
+    public Fr neg() {
+        return neg(this);
+    }
+
+    public Fr inverse() {
+        return inverse(this);
+    }
+
+    public boolean isZero() {
+        return (v[0] | v[1] | v[2] | v[3]) == 0;
+    }
+
+    public boolean isOne() {
+        return v[0] == R[0] && v[1] == R[1] && v[2] == R[2] && v[3] == R[3];
+    }
+
+    /**
+     * Compare the canonical (non Montgomery) values.
+     */
+    public int compareTo(Fr b) {
+        long[] x = new long[4];
+        long[] y = new long[4];
+        toCanonical(x);
+        b.toCanonical(y);
+        for (int i = 3; i >= 0; i--) {
+            int c = Long.compareUnsigned(x[i], y[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Write the canonical value (out of the Montgomery domain) as four little endian limbs.
+     */
+    public void toCanonical(long[] out) {
+        mul(v, ONE_LIMBS, out);
+    }
+
+    public BigInteger toBigInteger() {
+        return new BigInteger(toByteArray());
+    }
+
+    /**
+     * Same layout as {@link BigInteger#toByteArray()} for the canonical value.
+     */
+    public byte[] toByteArray() {
+        long[] c = new long[4];
+        toCanonical(c);
+        int top = 31;
+        while (top > 0 && byteAt(c, top) == 0) {
+            top--;
+        }
+        int len = top + 1;
+        if ((byteAt(c, top) & 0x80) != 0) {
+            len++;
+        }
+        byte[] result = new byte[len];
+        for (int i = 0; i <= top; i++) {
+            result[len - 1 - i] = (byte) byteAt(c, i);
+        }
+        return result;
+    }
+
+    /**
+     * Write the canonical value as 32 little endian bytes.
+     */
+    public void toBytesLE(byte[] out, int offset) {
+        long[] c = new long[4];
+        toCanonical(c);
+        for (int i = 0; i < 32; i++) {
+            out[offset + i] = (byte) byteAt(c, i);
+        }
+    }
+
+    private static int byteAt(long[] limbs, int i) {
+        return (int) (limbs[i >>> 3] >>> ((i & 7) * 8)) & 0xFF;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Fr)) {
+            return false;
+        }
+        return Arrays.equals(v, ((Fr) o).v);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(v);
+    }
+
+    @Override
+    public String toString() {
+        return toBigInteger().toString(10);
+    }
+
+    // limbs arithmetic
+
+    static long carry(long x, long y, long s) {
+        return ((x & y) | ((x | y) & ~s)) >>> 63;
+    }
+
+    static long borrow(long x, long y, long d) {
+        return ((~x & y) | (~(x ^ y) & d)) >>> 63;
+    }
+
+    static long mulHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    private static boolean geqModulus(long[] t) {
+        if (t[3] != P3) return Long.compareUnsigned(t[3], P3) > 0;
+        if (t[2] != P2) return Long.compareUnsigned(t[2], P2) > 0;
+        if (t[1] != P1) return Long.compareUnsigned(t[1], P1) > 0;
+        return Long.compareUnsigned(t[0], P0) >= 0;
+    }
+
+    private static void subModulus(long[] t) {
+        long d0 = t[0] - P0;
+        long br = borrow(t[0], P0, d0);
+        long d1 = t[1] - P1 - br;
+        br = borrow(t[1], P1, d1);
+        long d2 = t[2] - P2 - br;
+        br = borrow(t[2], P2, d2);
+        t[3] = t[3] - P3 - br;
+        t[0] = d0;
+        t[1] = d1;
+        t[2] = d2;
+    }
+
+    /**
+     * Montgomery product r = a*b*2^-256 mod p, r may alias a or b.
+     */
+    static void mul(long[] a, long[] b, long[] r) {
+        ENGINE.mul(a, b, r);
+    }
+}
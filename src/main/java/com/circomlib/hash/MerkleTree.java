@@ -0,0 +1,162 @@
+package com.circomlib.hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Append only Merkle tree of fixed depth, over any two to one hash of the library.
+ *
+ * Every node of the filled part is kept, level by level, so that an authentication path is a
+ * plain read. The right of the tree is made of empty subtrees, whose roots zeros[level] are
+ * computed once. An append only rehashes the path of the new leaf, each parent taking its left
+ * sibling from the frontier of the level, that is its last node. A tree built from many leaves
+ * hashes each level in parallel.
+ */
+public class MerkleTree {
+
+    /**
+     * Two to one hash of the tree nodes, called from several threads when building a tree.
+     */
+    public interface Hasher {
+        byte[] hash(byte[] left, byte[] right);
+    }
+
+    public final int depth;
+
+    private final Hasher hasher;
+
+    // zeros[l] = root of an empty subtree of height l
+    private final byte[][] zeros;
+
+    // levels.get(l).get(i) = node i of level l, the leaves at level 0
+    private final List<List<byte[]>> levels;
+
+    public MerkleTree(int depth, Hasher hasher, byte[] zero) {
+        this(depth, hasher, zero, new byte[0][]);
+    }
+
+    /**
+     * Tree holding the given leaves, built level by level with the pairs of a level hashed in parallel.
+     */
+    public MerkleTree(int depth, Hasher hasher, byte[] zero, byte[][] leaves) {
+        if (depth < 1 || depth > 30) {
+            throw new IllegalArgumentException("depth must be between 1 and 30");
+        }
+        if (leaves.length > (1 << depth)) {
+            throw new IllegalArgumentException("Too many leaves for the depth");
+        }
+        this.depth = depth;
+        this.hasher = hasher;
+        this.zeros = new byte[depth + 1][];
+        zeros[0] = zero;
+        for (int l = 0; l < depth; l++) {
+            zeros[l + 1] = hasher.hash(zeros[l], zeros[l]);
+        }
+
+        this.levels = new ArrayList<>(depth + 1);
+        byte[][] level = leaves.clone();
+        for (int l = 0; l <= depth; l++) {
+            levels.add(new ArrayList<>(List.of(level)));
+            if (l < depth) {
+                level = parents(level, l);
+            }
+        }
+    }
+
+    /**
+     * MiMCSponge of (left, right), nodes and leaves being field elements.
+     */
+    public static Hasher mimcSponge() {
+        MimcSponge mimc = new MimcSponge();
+        return (left, right) -> mimc.multiHash(new byte[][]{left, right})[0];
+    }
+
+    /**
+     * Pedersen hash of the 64 bytes left || right, nodes and leaves being 32 bytes long.
+     */
+    public static Hasher pedersen() {
+        Pedersen pedersen = new Pedersen();
+        return (left, right) -> {
+            byte[] buff = new byte[64];
+            System.arraycopy(left, 0, buff, 0, 32);
+            System.arraycopy(right, 0, buff, 32, 32);
+            return pedersen.hash(buff);
+        };
+    }
+
+    public int size() {
+        return levels.get(0).size();
+    }
+
+    public byte[] root() {
+        List<byte[]> top = levels.get(depth);
+        return top.isEmpty() ? zeros[depth] : top.get(0);
+    }
+
+    public byte[] leaf(int index) {
+        return levels.get(0).get(index);
+    }
+
+    /**
+     * Appends a leaf in depth hashes and returns its index.
+     */
+    public int insert(byte[] leaf) {
+        int index = size();
+        if (index == (1 << depth)) {
+            throw new IllegalStateException("Merkle tree is full");
+        }
+        byte[] node = leaf;
+        for (int l = 0, i = index; l <= depth; l++, i >>= 1) {
+            List<byte[]> level = levels.get(l);
+            if (i < level.size()) {
+                level.set(i, node);
+            } else {
+                level.add(node);
+            }
+            if (l < depth) {
+                node = (i & 1) == 0 ? hasher.hash(node, zeros[l]) : hasher.hash(level.get(i - 1), node);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Siblings of the nodes on the path from the leaf to the root, from the leaf level up.
+     * Bit l of the index tells whether the node of level l is a right child.
+     */
+    public byte[][] path(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("No leaf at " + index);
+        }
+        byte[][] path = new byte[depth][];
+        for (int l = 0, i = index; l < depth; l++, i >>= 1) {
+            List<byte[]> level = levels.get(l);
+            int sibling = i ^ 1;
+            path[l] = sibling < level.size() ? level.get(sibling) : zeros[l];
+        }
+        return path;
+    }
+
+    /**
+     * Checks that the leaf sits at index in a tree with the given root.
+     */
+    public static boolean verify(Hasher hasher, byte[] root, byte[] leaf, int index, byte[][] path) {
+        byte[] node = leaf;
+        for (int l = 0; l < path.length; l++) {
+            node = ((index >> l) & 1) == 0 ? hasher.hash(node, path[l]) : hasher.hash(path[l], node);
+        }
+        return Arrays.equals(node, root);
+    }
+
+    // parents of the nodes of level l, a last node without sibling is paired with an empty subtree
+    private byte[][] parents(byte[][] level, int l) {
+        byte[][] result = new byte[(level.length + 1) / 2][];
+        IntStream.range(0, result.length).parallel().forEach(i -> {
+            byte[] right = 2 * i + 1 < level.length ? level[2 * i + 1] : zeros[l];
+            result[i] = hasher.hash(level[2 * i], right);
+        });
+        return result;
+    }
+}
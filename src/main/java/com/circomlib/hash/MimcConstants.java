@@ -0,0 +1,140 @@
+package com.circomlib.hash;
+
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Process wide registry of the MiMCSponge round constants, keyed by (seed, nRounds) and already
+ * in Montgomery form.
+ *
+ * Constants are read from the resource {@code mimc/<seed>_<nRounds>.bin} when the jar ships it,
+ * 32 big endian bytes per round, otherwise derived once from the Keccak-256 chain of the seed.
+ * Only seeds made of letters, digits, '_' and '-' are looked up as resources. The arrays are
+ * shared by every sponge and must never be modified.
+ */
+final class MimcConstants {
+
+    private static final int CONSTANT_SIZE = 32;
+
+    // seeds that can be part of a resource name
+    private static final Pattern RESOURCE_SEED = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private static final ConcurrentHashMap<List<Object>, Fr[]> REGISTRY = new ConcurrentHashMap<>();
+
+    private MimcConstants() {
+    }
+
+    /**
+     * Constants of (seed, nRounds). Missing ones are loaded or derived outside of the map, so that
+     * no bin stays locked meanwhile, then published with putIfAbsent : racing threads all get the
+     * first array published.
+     */
+    static Fr[] of(String seed, int nRounds) {
+        List<Object> key = List.of(seed, nRounds);
+        Fr[] constants = REGISTRY.get(key);
+        if (constants != null) {
+            return constants;
+        }
+        constants = load(seed, nRounds);
+        Fr[] published = REGISTRY.putIfAbsent(key, constants);
+        return published != null ? published : constants;
+    }
+
+    /**
+     * Registers constants read from a binary stream, so that they are not derived again, constants
+     * already registered are kept. The check stays far cheaper than the derivation : nRounds
+     * canonical constants, zero at both ends, and c_1 from the first two Keccak-256 of the seed.
+     * The comparison with the whole derivation is left to the tests.
+     */
+    static void register(String seed, int nRounds, InputStream in) throws IOException {
+        Fr[] constants = read(in, nRounds);
+        if (nRounds < 3 || !constants[0].isZero() || !constants[nRounds - 1].isZero()
+                || !constants[1].equals(first(seed))) {
+            throw new IOException("Constants do not match the seed " + seed + " with " + nRounds + " rounds");
+        }
+        REGISTRY.putIfAbsent(List.of(seed, nRounds), constants);
+    }
+
+    static String resourceName(String seed, int nRounds) {
+        if (!RESOURCE_SEED.matcher(seed).matches()) {
+            throw new IllegalArgumentException("Seed " + seed + " is not a resource name");
+        }
+        return "mimc/" + seed + "_" + nRounds + ".bin";
+    }
+
+    private static Fr[] load(String seed, int nRounds) {
+        if (!RESOURCE_SEED.matcher(seed).matches()) {
+            return derive(seed, nRounds);
+        }
+        try (InputStream in = MimcConstants.class.getResourceAsStream(resourceName(seed, nRounds))) {
+            if (in != null) {
+                return read(in, nRounds);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return derive(seed, nRounds);
+    }
+
+    // c_1 = keccak(keccak(seed)) mod p
+    private static Fr first(String seed) {
+        Keccak.DigestKeccak kecc = new Keccak.Digest256();
+        byte[] c = kecc.digest(kecc.digest(seed.getBytes(StandardCharsets.UTF_8)));
+        return Fr.fromBigInteger(new BigInteger(1, c));
+    }
+
+    /**
+     * c_0 = c_(n-1) = 0 and c_i = keccak^(i+1)(seed) mod p.
+     */
+    static Fr[] derive(String seed, int nRounds) {
+        Keccak.DigestKeccak kecc = new Keccak.Digest256();
+        Fr[] result = new Fr[nRounds];
+        byte[] c = kecc.digest(seed.getBytes(StandardCharsets.UTF_8));
+        for (int i = 1; i < nRounds; i++) {
+            c = kecc.digest(c);
+            result[i] = Fr.fromBigInteger(new BigInteger(1, c));
+        }
+        result[0] = new Fr();
+        result[nRounds - 1] = new Fr();
+        return result;
+    }
+
+    static Fr[] read(InputStream in, int nRounds) throws IOException {
+        byte[] data = in.readAllBytes();
+        if (data.length != nRounds * CONSTANT_SIZE) {
+            throw new IOException("Expected " + nRounds + " constants, got " + data.length + " bytes");
+        }
+        Fr[] result = new Fr[nRounds];
+        byte[] be = new byte[CONSTANT_SIZE + 1];
+        for (int i = 0; i < nRounds; i++) {
+            System.arraycopy(data, i * CONSTANT_SIZE, be, 1, CONSTANT_SIZE);
+            if (new BigInteger(be).compareTo(Fr.MODULUS) >= 0) {
+                throw new IOException("Constant " + i + " is not below the field modulus");
+            }
+            result[i] = Fr.fromBytes(be);
+        }
+        return result;
+    }
+
+    static void write(Fr[] constants, OutputStream out) throws IOException {
+        ByteArrayOutputStream buff = new ByteArrayOutputStream(constants.length * CONSTANT_SIZE);
+        byte[] le = new byte[CONSTANT_SIZE];
+        for (Fr c : constants) {
+            c.toBytesLE(le, 0);
+            for (int i = CONSTANT_SIZE - 1; i >= 0; i--) {
+                buff.write(le[i]);
+            }
+        }
+        buff.writeTo(out);
+    }
+}
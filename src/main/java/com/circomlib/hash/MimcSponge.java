@@ -1,40 +1,45 @@
 package com.circomlib.hash;
 
-import org.bouncycastle.jcajce.provider.digest.Keccak;
-
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
 
 public class MimcSponge {
 
-    private final byte[][] constantBase;
+    // pairs hashed by one task of the batch hash
+    static final int BATCH_BLOCK = 64;
+
     private final int nRounds;
 
+    // round constants in Montgomery form, the first round has none
+    private final Fr[] constants;
+
+    /**
+     * Sponge over the shared constants of (seed, nRounds), see {@link MimcConstants}.
+     */
     public MimcSponge(String seed, int nRounds) {
-        this.constantBase = getConstants(seed, nRounds);
+        this.constants = MimcConstants.of(seed, nRounds);
         this.nRounds = nRounds;
     }
     public MimcSponge(byte[][] base) {
-        this.constantBase = base;
-        this.nRounds = constantBase.length;
+        this.nRounds = base.length;
+        this.constants = new Fr[nRounds];
+        for (int i = 0; i < nRounds; i++) {
+            constants[i] = i == 0 ? new Fr() : Fr.fromBytes(base[i]);
+        }
     }
     public MimcSponge() {
-        this.constantBase = getConstants("mimcsponge", 220);
-        this.nRounds = 220;
+        this("mimcsponge", 220);
     }
 
-    private byte[][] getConstants(String seed, int nRounds) {
-        Keccak.DigestKeccak kecc = new Keccak.Digest256();
-        byte[][] result = new byte[nRounds][32];
-        byte[] c = kecc.digest(seed.getBytes(StandardCharsets.UTF_8));
-
-        for(int i=1; i<nRounds; i++) {
-            c = kecc.digest(c);
-            result[i] = ByteArrayOperator.e(c);
-        }
-        result[0] = longToBytes(0);
-        result[nRounds - 1] = longToBytes(0);
-        return result;
+    /**
+     * Uses the constants read from the stream, 32 big endian bytes per round, for every sponge of
+     * (seed, nRounds) created afterwards, instead of deriving them. Constants that differ from the
+     * ones of the seed are rejected with an IOException.
+     */
+    public static void registerConstants(String seed, int nRounds, InputStream in) throws IOException {
+        MimcConstants.register(seed, nRounds, in);
     }
 
     public PairByteArray hash(long l, long r) {
@@ -50,26 +55,89 @@ public class MimcSponge {
     }
 
     public PairByteArray hash(byte[] l, byte[] r, long k) {
+        Fr xl = Fr.fromBytes(l);
+        Fr xr = Fr.fromBytes(r);
+        permute(xl, xr, key(k));
+        return new PairByteArray(xl.toByteArray(), xr.toByteArray());
+    }
 
-        byte[] xl = l.clone();
-        byte[] xr = r.clone();
-        byte[] xk = longToBytes(k);
-
-        for(int i=0; i<nRounds; i++) {
-            byte[] c = constantBase[i];
-            byte[] t = (i==0) ? ByteArrayOperator.add(xl, xk) : ByteArrayOperator.add(xl, xk, c);
-            byte[] t2 = ByteArrayOperator.square(t);
-            byte[] t4 = ByteArrayOperator.square(t2);
-            byte[] t5 = ByteArrayOperator.mul(t4,t);
-            byte[] xrTmp = xr.clone();
-            if(i < nRounds - 1) {
-                xr = xl;
-                xl = ByteArrayOperator.add(xrTmp, t5);
-            } else {
-                xr = ByteArrayOperator.add(xrTmp, t5);
+    /**
+     * MiMC Feistel permutation of (xl, xr) with the key k, in place : each round computes
+     * (xl + k + c)^5 into a scratch element and the swap of the halves only exchanges references,
+     * so the rounds allocate nothing.
+     */
+    public void permute(Fr xl, Fr xr, Fr k) {
+        Fr l = xl;
+        Fr r = xr;
+        Fr t = new Fr();
+        Fr t5 = new Fr();
+        for (int i = 0; i < nRounds; i++) {
+            t.add(l, k).add(constants[i]);
+            t5.square(t).square().mul(t);
+            r.add(t5);
+            if (i < nRounds - 1) {
+                Fr swap = l;
+                l = r;
+                r = swap;
             }
         }
-        return new PairByteArray(xl, xr);
+        if (l != xl) {
+            t.set(xl);
+            xl.set(xr);
+            xr.set(t);
+        }
+    }
+
+    /**
+     * hash(l_i, r_i, k_i) of count independent pairs. Elements are 32 bytes big endian in flat
+     * arrays, element i at offset 32 * i, k may be null for zero keys. The pairs go by blocks of
+     * {@link #BATCH_BLOCK}, spread over the common ForkJoin pool when parallel is set, and each
+     * block reuses its elements from a pair to the next.
+     */
+    public void hash(byte[] l, byte[] r, byte[] k, int count, byte[] outL, byte[] outR, boolean parallel) {
+        int nBlocks = (count + BATCH_BLOCK - 1) / BATCH_BLOCK;
+        IntStream blocks = IntStream.range(0, nBlocks);
+        (parallel ? blocks.parallel() : blocks).forEach(b -> {
+            Fr xl = new Fr();
+            Fr xr = new Fr();
+            Fr xk = new Fr();
+            byte[] be = new byte[33];
+            byte[] le = new byte[32];
+            for (int i = b * BATCH_BLOCK; i < Math.min(count, (b + 1) * BATCH_BLOCK); i++) {
+                xl.setBytes(element(l, i, be));
+                xr.setBytes(element(r, i, be));
+                if (k != null) {
+                    xk.setBytes(element(k, i, be));
+                }
+                permute(xl, xr, xk);
+                toElement(xl, le, outL, i);
+                toElement(xr, le, outR, i);
+            }
+        });
+    }
+
+    // element i of a flat array, in the BigInteger layout
+    private static byte[] element(byte[] src, int i, byte[] be) {
+        System.arraycopy(src, i * 32, be, 1, 32);
+        return be;
+    }
+
+    private static void toElement(Fr x, byte[] le, byte[] dst, int i) {
+        x.toBytesLE(le, 0);
+        for (int j = 0; j < 32; j++) {
+            dst[i * 32 + j] = le[31 - j];
+        }
+    }
+
+    /**
+     * Empty incremental sponge with a zero key, see {@link MimcSpongeState}.
+     */
+    public MimcSpongeState newState() {
+        return newState(0);
+    }
+
+    public MimcSpongeState newState(long key) {
+        return new MimcSpongeState(this, key(key));
     }
 
     public byte[][] multiHash(byte[][] input) {
@@ -78,28 +146,22 @@ public class MimcSponge {
 
 
     public byte[][] multiHash(byte[][] input, int key, int numOutputs) {
-        byte[][] result = new byte[numOutputs][];
-
-        byte[] r = longToBytes(0);
-        byte[] c = longToBytes(0);
-
+        MimcSpongeState state = newState(key);
         for (byte[] bytes : input) {
-            r = ByteArrayOperator.add(r, bytes);
-            PairByteArray s = hash(r, c, key);
-            r = s.l;
-            c = s.r;
-        }
-        result[0] = r;
-        for (int i=1; i < numOutputs; i++) {
-            PairByteArray s = hash(r, c, key);
-            r = s.l;
-            c = s.r;
-            result[i] = r;
+            state.absorb(bytes);
         }
-        return result;
+        return state.squeeze(numOutputs);
+    }
+
+    /**
+     * Key k as the sponge has always read it : the two's complement bytes of k taken as an
+     * unsigned value, so that -1 is the key 255.
+     */
+    private static Fr key(long k) {
+        return Fr.fromBytes(longToBytes(k));
     }
 
-    private byte[] longToBytes(long x) {
+    private static byte[] longToBytes(long x) {
         BigInteger ba = new BigInteger(String.valueOf(x));
         byte[] val = ba.toByteArray();
         byte[] result = new byte[32];
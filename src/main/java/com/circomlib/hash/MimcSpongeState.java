@@ -0,0 +1,71 @@
+package com.circomlib.hash;
+
+/**
+ * Incremental MiMCSponge : the (r, c) state of {@link MimcSponge#multiHash(byte[][], int, int)}
+ * between two elements.
+ *
+ * Absorbing an element adds it to r and permutes, squeezing returns r then permutes before each
+ * following output, so absorbing the inputs then squeezing n outputs gives the multiHash outputs.
+ * A state holding a shared prefix can be kept with {@link #snapshot()} and every input continued
+ * from it with {@link #restore(MimcSpongeState)}, copies of two field elements.
+ */
+public final class MimcSpongeState {
+
+    private final MimcSponge sponge;
+    private final Fr key;
+    private final Fr r = new Fr();
+    private final Fr c = new Fr();
+
+    // outputs squeezed since the last absorb
+    private int squeezed;
+
+    MimcSpongeState(MimcSponge sponge, Fr key) {
+        this.sponge = sponge;
+        this.key = key;
+    }
+
+    public MimcSpongeState absorb(byte[] element) {
+        return absorb(Fr.fromBytes(element));
+    }
+
+    public MimcSpongeState absorb(Fr element) {
+        r.add(element);
+        sponge.permute(r, c, key);
+        squeezed = 0;
+        return this;
+    }
+
+    public byte[][] squeeze(int n) {
+        byte[][] result = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            if (squeezed > 0) {
+                sponge.permute(r, c, key);
+            }
+            result[i] = r.toByteArray();
+            squeezed++;
+        }
+        return result;
+    }
+
+    /**
+     * Copy of the current state, left untouched by later absorbs on this one.
+     */
+    public MimcSpongeState snapshot() {
+        MimcSpongeState s = new MimcSpongeState(sponge, key);
+        s.restore(this);
+        return s;
+    }
+
+    /**
+     * Puts this state back to the one of the snapshot, which must come from the same sponge and key.
+     */
+    public MimcSpongeState restore(MimcSpongeState snapshot) {
+        if (snapshot.sponge != sponge || !snapshot.key.equals(key)) {
+            throw new IllegalArgumentException("Snapshot of another sponge");
+        }
+        r.set(snapshot.r);
+        c.set(snapshot.c);
+        squeezed = snapshot.squeezed;
+        return this;
+    }
+}
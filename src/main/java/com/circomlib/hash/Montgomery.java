@@ -1,101 +1,557 @@
 package com.circomlib.hash;
 
 import java.math.BigInteger;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Montgomery multiplication engine over 64 bits limbs (CIOS) for any odd modulus.
+ *
+ * Values are little endian long[] of {@link #limbs} words. Entering and leaving the Montgomery
+ * domain is explicit ({@link #toMontgomery} / {@link #fromMontgomery}), everything in between stays
+ * in Montgomery form. Engines are immutable and shared per modulus through {@link #of(BigInteger)}.
+ */
 public class Montgomery {
 
+    private static final ConcurrentHashMap<BigInteger, Montgomery> ENGINES = new ConcurrentHashMap<>();
+
     // modulus, must be odd
     public final BigInteger m;
 
     // m bit size
     public final int n;
 
-    // (1<<2n) mod m
+    // number of 64 bits limbs
+    public final int limbs;
+
+    // modulus limbs
+    final long[] mod;
+
+    // -m^-1 mod 2^64
+    final long inv;
+
+    // R mod m with R = 2^(64*limbs), the Montgomery form of 1
+    final long[] one;
+
+    // R^2 mod m
+    final long[] r2Limbs;
+
+    // R^3 mod m, turns a plain inverse of a Montgomery value back into Montgomery form
+    private final long[] r3;
+
+    // the top limb leaves a spare bit, the extra carry word of CIOS can be dropped
+    private final boolean noCarry;
+
+    private final long m0, m1, m2, m3;
+
+    // shared divsteps context of the modulus, resolved once for the inversions
+    private final SafeGcd safeGcd;
+
+    // 2^n mod m and 2^-n mod m, the R of the BigInteger helpers expend and reduce
+    private final BigInteger rBits;
+    private final BigInteger rBitsInverse;
+
+    /**
+     * (1<<2n) mod m
+     * @deprecated internal constant of the former bit by bit engine, kept for compatibility
+     */
+    @Deprecated
     public final BigInteger r2;
 
+    /**
+     * @deprecated only used by {@link #reduceTest} and {@link #expendTest}
+     */
+    @Deprecated
     public final int reducerbits;
 
+    /**
+     * (1<<reducerbits)^-1 mod m
+     * @deprecated only used by {@link #expendTest}
+     */
+    @Deprecated
     public final BigInteger reciprocal;
 
     public Montgomery(BigInteger m) {
         if (!m.testBit(0)) {
             throw new IllegalArgumentException("m must be odd");
         }
+        if (m.compareTo(BigInteger.ONE) <= 0) {
+            throw new IllegalArgumentException("m must be greater than 1");
+        }
 
         this.m = m;
         this.n = m.bitLength();
+        this.limbs = (n + 63) / 64;
+
+        this.mod = toLimbs(m, limbs);
+        this.inv = BigInteger.ONE.shiftLeft(64).subtract(m.modInverse(BigInteger.ONE.shiftLeft(64))).longValue();
 
-        BigInteger x = BigInteger.ONE.shiftLeft(n);
-        x = x.subtract(m);
-        r2 = x.multiply(x).mod(m);
+        BigInteger r = BigInteger.ONE.shiftLeft(64 * limbs);
+        this.one = toLimbs(r.mod(m), limbs);
+        this.r2Limbs = toLimbs(r.multiply(r).mod(m), limbs);
+        this.r3 = toLimbs(r.pow(3).mod(m), limbs);
 
+        this.noCarry = Long.compareUnsigned(mod[limbs - 1], 0x7FFFFFFFFFFFFFFEL) <= 0;
+        this.m0 = mod[0];
+        this.m1 = limbs > 1 ? mod[1] : 0;
+        this.m2 = limbs > 2 ? mod[2] : 0;
+        this.m3 = limbs > 3 ? mod[3] : 0;
+        this.safeGcd = SafeGcd.of(m);
 
-        this.reducerbits = ((n / 8)+1)*8;
-        BigInteger reducer = BigInteger.ONE.shiftLeft(reducerbits);
-        BigInteger mask = reducer.subtract(BigInteger.ONE);
-        if (reducer.compareTo(m) < 0 || reducer.gcd(m).intValue() != 1) {
-            throw new IllegalArgumentException("Reducer error");
+        this.rBits = BigInteger.ONE.shiftLeft(n).mod(m);
+        this.rBitsInverse = rBits.modInverse(m);
+        this.r2 = rBits.multiply(rBits).mod(m);
+        this.reducerbits = ((n / 8) + 1) * 8;
+        this.reciprocal = BigInteger.ONE.shiftLeft(reducerbits).modInverse(m);
+    }
+
+    /**
+     * Shared engine for the modulus m.
+     */
+    public static Montgomery of(BigInteger m) {
+        return ENGINES.computeIfAbsent(m, Montgomery::new);
+    }
+
+    public long[] newElement() {
+        return new long[limbs];
+    }
+
+    /**
+     * r = a*R mod m, a must be reduced.
+     */
+    public void toMontgomery(long[] a, long[] r) {
+        mul(a, r2Limbs, r);
+    }
+
+    /**
+     * r = a*R^-1 mod m
+     */
+    public void fromMontgomery(long[] a, long[] r) {
+        long[] unit = new long[limbs];
+        unit[0] = 1;
+        mul(a, unit, r);
+    }
+
+    public void setOne(long[] r) {
+        System.arraycopy(one, 0, r, 0, limbs);
+    }
+
+    public boolean isOne(long[] a) {
+        for (int i = 0; i < limbs; i++) {
+            if (a[i] != one[i]) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        this.reciprocal = reducer.modInverse(m);
+    /**
+     * Montgomery product r = a*b*R^-1 mod m. r may be the same array as a or b.
+     */
+    public void mul(long[] a, long[] b, long[] r) {
+        if (noCarry && limbs == 4) {
+            mul4(a, b, r);
+        } else {
+            mulGeneric(a, b, r);
+        }
     }
 
-    public BigInteger reduceTest(BigInteger t) {
-        BigInteger result = new BigInteger(t.toString());
-        return result.shiftLeft(this.reducerbits).mod(this.m);
+    public void square(long[] a, long[] r) {
+        mul(a, a, r);
     }
 
-    public BigInteger expendTest(BigInteger t) {
-        BigInteger result = new BigInteger(t.toString());
-        return result.multiply(this.reciprocal).mod(this.m);
+    public void add(long[] a, long[] b, long[] r) {
+        long c = 0;
+        for (int i = 0; i < limbs; i++) {
+            long s = a[i] + b[i] + c;
+            c = Fr.carry(a[i], b[i], s);
+            r[i] = s;
+        }
+        if (c != 0 || geqModulus(r)) {
+            subModulus(r);
+        }
     }
 
-    public BigInteger expend(BigInteger t) {
-        BigInteger result = new BigInteger(t.toString());
+    public void sub(long[] a, long[] b, long[] r) {
+        long br = 0;
+        for (int i = 0; i < limbs; i++) {
+            long d = a[i] - b[i] - br;
+            br = Fr.borrow(a[i], b[i], d);
+            r[i] = d;
+        }
+        if (br != 0) {
+            long c = 0;
+            for (int i = 0; i < limbs; i++) {
+                long s = r[i] + mod[i] + c;
+                c = Fr.carry(r[i], mod[i], s);
+                r[i] = s;
+            }
+        }
+    }
 
-        for (int i=0; i<this.n; i++) {
-            if (result.testBit(0)) {
-                result = result.add(m);
+    /**
+     * r = a^e with a in Montgomery form, e a canonical little endian exponent.
+     */
+    public void exp(long[] a, long[] e, long[] r) {
+        long[] base = a.clone();
+        setOne(r);
+        for (int i = e.length - 1; i >= 0; i--) {
+            for (int bit = 63; bit >= 0; bit--) {
+                mul(r, r, r);
+                if (((e[i] >>> bit) & 1) == 1) {
+                    mul(r, base, r);
+                }
             }
-            result = result.shiftLeft(1);
         }
-        return result.mod(m);
     }
 
-    public BigInteger reduce(BigInteger t) {
-        BigInteger result = new BigInteger(t.toString());
+    /**
+     * r = a^-1 with a in Montgomery form, zero is mapped to zero. Constant time, see {@link SafeGcd}.
+     * Only meaningful when a is coprime to m.
+     */
+    public void inverse(long[] a, long[] r) {
+        // (aR)^-1 * R^3 * R^-1 = a^-1 R
+        safeGcd.inverse(a, r);
+        mul(r, r3, r);
+    }
+
+    /**
+     * Legendre symbol of a (Montgomery form) : 1 for a non zero square, -1 for a non square, 0 for zero.
+     * Only meaningful when m is prime.
+     */
+    public int legendre(long[] a) {
+        long[] c = newElement();
+        fromMontgomery(a, c);
+        return jacobi(c, mod);
+    }
 
-        for (int i=0; i<this.n; i++) {
-            if (result.testBit(0)) {
-                result = result.add(m);
+    /**
+     * Jacobi symbol (a/n) of canonical little endian limbs, n odd and a < n. Binary algorithm :
+     * factors of two are stripped with shifts, reciprocity is applied on swaps, and the loop
+     * drops to single word arithmetic once both values fit in 64 bits.
+     */
+    public static int jacobi(long[] a, long[] n) {
+        long[] x = a.clone();
+        long[] y = n.clone();
+        int lx = length(x, x.length);
+        int ly = length(y, y.length);
+        int t = 1;
+
+        while (lx > 1 || ly > 1) {
+            if (lx == 0) {
+                return 0;
+            }
+            int zeroLimbs = 0;
+            while (x[zeroLimbs] == 0) {
+                zeroLimbs++;
+            }
+            int bits = Long.numberOfTrailingZeros(x[zeroLimbs]);
+            int tz = zeroLimbs * 64 + bits;
+            if (tz != 0) {
+                shiftRight(x, lx, zeroLimbs, bits);
+                lx = length(x, lx);
+                long r = y[0] & 7;
+                if ((tz & 1) == 1 && (r == 3 || r == 5)) {
+                    t = -t;
+                }
+            }
+
+            if (compare(x, lx, y, ly) < 0) {
+                long[] tmp = x;
+                x = y;
+                y = tmp;
+                int l = lx;
+                lx = ly;
+                ly = l;
+                if ((x[0] & 3) == 3 && (y[0] & 3) == 3) {
+                    t = -t;
+                }
+            }
+
+            long br = 0;
+            for (int i = 0; i < lx; i++) {
+                long yi = i < ly ? y[i] : 0;
+                long d = x[i] - yi - br;
+                br = Fr.borrow(x[i], yi, d);
+                x[i] = d;
             }
-            result = result.shiftRight(1);
+            lx = length(x, lx);
         }
-        if (result.compareTo(m) >= 0) {
-            result = result.subtract(m);
+
+        long u = x[0];
+        long v = y[0];
+        while (u != 0) {
+            int tz = Long.numberOfTrailingZeros(u);
+            u >>>= tz;
+            long r = v & 7;
+            if ((tz & 1) == 1 && (r == 3 || r == 5)) {
+                t = -t;
+            }
+            if (Long.compareUnsigned(u, v) < 0) {
+                long tmp = u;
+                u = v;
+                v = tmp;
+                if ((u & 3) == 3 && (v & 3) == 3) {
+                    t = -t;
+                }
+            }
+            u -= v;
+        }
+        return v == 1 ? t : 0;
+    }
+
+    // number of significant limbs among the first len
+    private static int length(long[] a, int len) {
+        while (len > 0 && a[len - 1] == 0) {
+            len--;
+        }
+        return len;
+    }
+
+    private static int compare(long[] a, int la, long[] b, int lb) {
+        if (la != lb) {
+            return la < lb ? -1 : 1;
+        }
+        for (int i = la - 1; i >= 0; i--) {
+            if (a[i] != b[i]) {
+                return Long.compareUnsigned(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+
+    // a >>= 64*limbs + bits on the first len limbs
+    private static void shiftRight(long[] a, int len, int limbs, int bits) {
+        for (int i = 0; i < len; i++) {
+            long lo = i + limbs < len ? a[i + limbs] : 0;
+            long hi = i + limbs + 1 < len ? a[i + limbs + 1] : 0;
+            a[i] = bits == 0 ? lo : (lo >>> bits) | (hi << (64 - bits));
+        }
+    }
+
+    public long[] toLimbs(BigInteger a) {
+        return toLimbs(a.mod(m), limbs);
+    }
+
+    public BigInteger toBigInteger(long[] a) {
+        BigInteger result = BigInteger.ZERO;
+        for (int i = a.length - 1; i >= 0; i--) {
+            result = result.shiftLeft(64).or(new BigInteger(Long.toUnsignedString(a[i])));
         }
         return result;
     }
 
+    static long[] toLimbs(BigInteger a, int limbs) {
+        long[] result = new long[limbs];
+        for (int i = 0; i < limbs; i++) {
+            result[i] = a.shiftRight(64 * i).longValue();
+        }
+        return result;
+    }
+
+    // BigInteger helpers, each call enters and leaves the Montgomery domain
+
+    /**
+     * t*2^n mod m, n being the bit size of m. This R = 2^n is the one of the original bit by bit
+     * engine and differs from the R = 2^(64*limbs) of the limbs API.
+     */
+    public BigInteger expend(BigInteger t) {
+        return multiply(t, rBits);
+    }
+
+    /**
+     * t*2^-n mod m, inverse of {@link #expend(BigInteger)}.
+     */
+    public BigInteger reduce(BigInteger t) {
+        return multiply(t, rBitsInverse);
+    }
+
+    /**
+     * t*2^reducerbits mod m
+     * @deprecated plain modular arithmetic, use {@link BigInteger#shiftLeft} and {@link BigInteger#mod}
+     */
+    @Deprecated
+    public BigInteger reduceTest(BigInteger t) {
+        return t.shiftLeft(reducerbits).mod(m);
+    }
+
+    /**
+     * t*2^-reducerbits mod m
+     * @deprecated plain modular arithmetic, use {@link #multiply} with {@link #reciprocal}
+     */
+    @Deprecated
+    public BigInteger expendTest(BigInteger t) {
+        return t.multiply(reciprocal).mod(m);
+    }
+
     public BigInteger multiply(BigInteger a, BigInteger b) {
-        BigInteger t1 = reduce(a.multiply(this.r2));
-        BigInteger t2 = reduce(b.multiply(this.r2));
-        BigInteger r = reduce(t1.multiply(t2));
-        return reduce(r);
+        long[] x = toLimbs(a);
+        long[] y = toLimbs(b);
+        toMontgomery(x, x);
+        mul(x, y, x);
+        return toBigInteger(x);
     }
 
     public BigInteger exp(BigInteger a, BigInteger b) {
-        BigInteger prod = reduce(this.r2);
-        BigInteger base = reduce(a.multiply(this.r2));
+        long[] x = toLimbs(a);
+        toMontgomery(x, x);
+        exp(x, toLimbs(b, (b.bitLength() + 63) / 64), x);
+        fromMontgomery(x, x);
+        return toBigInteger(x);
+    }
+
+    private boolean geqModulus(long[] t) {
+        for (int i = limbs - 1; i >= 0; i--) {
+            if (t[i] != mod[i]) {
+                return Long.compareUnsigned(t[i], mod[i]) > 0;
+            }
+        }
+        return true;
+    }
+
+    private void subModulus(long[] t) {
+        long br = 0;
+        for (int i = 0; i < limbs; i++) {
+            long d = t[i] - mod[i] - br;
+            br = Fr.borrow(t[i], mod[i], d);
+            t[i] = d;
+        }
+    }
+
+    /**
+     * Textbook CIOS with the two extra carry words kept in locals.
+     */
+    private void mulGeneric(long[] a, long[] b, long[] r) {
+        int s = limbs;
+        long[] t = (r == a || r == b) ? new long[s] : r;
+        for (int i = 0; i < s; i++) {
+            t[i] = 0;
+        }
+        long ts = 0, ts1;
+        for (int i = 0; i < s; i++) {
+            long bi = b[i];
+            long c = 0;
+            for (int j = 0; j < s; j++) {
+                long lo = a[j] * bi;
+                long hi = Fr.mulHigh(a[j], bi);
+                long x = lo + c;
+                hi += Fr.carry(lo, c, x);
+                lo = x + t[j];
+                hi += Fr.carry(x, t[j], lo);
+                t[j] = lo;
+                c = hi;
+            }
+            long x = ts + c;
+            ts1 = Fr.carry(ts, c, x);
+            ts = x;
 
-        BigInteger exp = new BigInteger(b.toString());
-        while (exp.bitLength() > 0) {
-            if (exp.testBit(0)) {
-                prod = reduce(prod.multiply(base));
+            long q = t[0] * inv;
+            long lo = q * mod[0];
+            c = Fr.mulHigh(q, mod[0]) + Fr.carry(lo, t[0], lo + t[0]);
+            for (int j = 1; j < s; j++) {
+                lo = q * mod[j];
+                long hi = Fr.mulHigh(q, mod[j]);
+                x = lo + c;
+                hi += Fr.carry(lo, c, x);
+                lo = x + t[j];
+                hi += Fr.carry(x, t[j], lo);
+                t[j - 1] = lo;
+                c = hi;
             }
-            exp = exp.shiftRight(1);
-            base = reduce(base.multiply(base));
+            x = ts + c;
+            t[s - 1] = x;
+            ts = ts1 + Fr.carry(ts, c, x);
+        }
+        if (ts != 0 || geqModulus(t)) {
+            subModulus(t);
+        }
+        if (t != r) {
+            System.arraycopy(t, 0, r, 0, s);
+        }
+    }
+
+    /**
+     * Four limbs CIOS without the extra carry word, requires a modulus below 2^255.
+     */
+    private void mul4(long[] a, long[] b, long[] r) {
+        long a0 = a[0], a1 = a[1], a2 = a[2], a3 = a[3];
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+        for (int i = 0; i < 4; i++) {
+            long bi = b[i];
+            long lo, hi, s, A, C;
+
+            // (A, t0) = t0 + a0*bi
+            lo = a0 * bi;
+            hi = Fr.mulHigh(a0, bi);
+            s = t0 + lo;
+            A = hi + Fr.carry(t0, lo, s);
+            t0 = s;
+
+            long q = t0 * inv;
+            // (C, _) = t0 + q*m0
+            lo = q * m0;
+            hi = Fr.mulHigh(q, m0);
+            s = t0 + lo;
+            C = hi + Fr.carry(t0, lo, s);
+
+            // (A, t1) = t1 + a1*bi + A
+            lo = a1 * bi;
+            hi = Fr.mulHigh(a1, bi);
+            s = lo + A;
+            hi += Fr.carry(lo, A, s);
+            lo = s + t1;
+            A = hi + Fr.carry(s, t1, lo);
+            t1 = lo;
+            // (C, t0) = t1 + q*m1 + C
+            lo = q * m1;
+            hi = Fr.mulHigh(q, m1);
+            s = lo + C;
+            hi += Fr.carry(lo, C, s);
+            lo = s + t1;
+            C = hi + Fr.carry(s, t1, lo);
+            t0 = lo;
+
+            // (A, t2) = t2 + a2*bi + A
+            lo = a2 * bi;
+            hi = Fr.mulHigh(a2, bi);
+            s = lo + A;
+            hi += Fr.carry(lo, A, s);
+            lo = s + t2;
+            A = hi + Fr.carry(s, t2, lo);
+            t2 = lo;
+            // (C, t1) = t2 + q*m2 + C
+            lo = q * m2;
+            hi = Fr.mulHigh(q, m2);
+            s = lo + C;
+            hi += Fr.carry(lo, C, s);
+            lo = s + t2;
+            C = hi + Fr.carry(s, t2, lo);
+            t1 = lo;
+
+            // (A, t3) = t3 + a3*bi + A
+            lo = a3 * bi;
+            hi = Fr.mulHigh(a3, bi);
+            s = lo + A;
+            hi += Fr.carry(lo, A, s);
+            lo = s + t3;
+            A = hi + Fr.carry(s, t3, lo);
+            t3 = lo;
+            // (C, t2) = t3 + q*m3 + C
+            lo = q * m3;
+            hi = Fr.mulHigh(q, m3);
+            s = lo + C;
+            hi += Fr.carry(lo, C, s);
+            lo = s + t3;
+            C = hi + Fr.carry(s, t3, lo);
+            t2 = lo;
+
+            t3 = C + A;
+        }
+        r[0] = t0;
+        r[1] = t1;
+        r[2] = t2;
+        r[3] = t3;
+        if (geqModulus(r)) {
+            subModulus(r);
         }
-        return reduce(prod);
     }
 }
@@ -0,0 +1,167 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Sums k_1*P_1 + ... + k_n*P_n sharing the doublings between the terms.
+ *
+ * Small batches use Straus : one wNAF per scalar and a single doubling chain, every point keeping
+ * its own table of odd multiples. Large batches use Pippenger : the scalars are cut in signed
+ * windows of c bits, each window drops the points in 2^(c-1) buckets and sums the buckets with a
+ * running sum, c being chosen to minimize the number of additions. In parallel mode Straus splits
+ * the points and Pippenger the windows across the common ForkJoin pool.
+ */
+final class MultiScalarMul {
+
+    // above this size the bucket method needs fewer additions
+    static final int STRAUS_THRESHOLD = 256;
+
+    private static final int MIN_PARALLEL_CHUNK = 16;
+
+    private MultiScalarMul() {
+    }
+
+    static ExtendedPoint compute(ExtendedPoint[] points, BigInteger[] scalars, boolean parallel) {
+        if (points.length != scalars.length) {
+            throw new IllegalArgumentException("Points and scalars must have the same length");
+        }
+        int n = points.length;
+
+        // negative scalars multiply the opposite point
+        ExtendedPoint[] ps = new ExtendedPoint[n];
+        BigInteger[] ks = new BigInteger[n];
+        int bits = 0;
+        for (int i = 0; i < n; i++) {
+            ps[i] = new ExtendedPoint(points[i]);
+            ks[i] = scalars[i];
+            if (ks[i].signum() < 0) {
+                ps[i].neg(ps[i]);
+                ks[i] = ks[i].negate();
+            }
+            bits = Math.max(bits, ks[i].bitLength());
+        }
+        if (n == 0 || bits == 0) {
+            return new ExtendedPoint();
+        }
+
+        if (n <= STRAUS_THRESHOLD) {
+            if (!parallel || n < 2 * MIN_PARALLEL_CHUNK) {
+                return straus(ps, ks, 0, n, bits);
+            }
+            int chunks = Math.min((n + MIN_PARALLEL_CHUNK - 1) / MIN_PARALLEL_CHUNK, Runtime.getRuntime().availableProcessors());
+            int chunkSize = (n + chunks - 1) / chunks;
+            int finalBits = bits;
+            return IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> straus(ps, ks, c * chunkSize, Math.min(n, (c + 1) * chunkSize), finalBits))
+                    .reduce(new ExtendedPoint(), (a, b) -> new ExtendedPoint().add(a, b));
+        }
+        ExtendedPoint.normalize(ps);
+        return pippenger(ps, ks, bits, parallel);
+    }
+
+    /**
+     * Straus over points [from, to), the odd multiples of all the points are normalized together.
+     */
+    static ExtendedPoint straus(ExtendedPoint[] points, BigInteger[] scalars, int from, int to, int bits) {
+        int w = ExtendedPoint.WNAF_WIDTH;
+        int n = to - from;
+        int size = 1 << (w - 2);
+        ExtendedPoint[][] odd = new ExtendedPoint[n][size];
+        ExtendedPoint[] all = new ExtendedPoint[n * size];
+        int[][] digits = new int[n][];
+        ExtendedPoint twice = new ExtendedPoint();
+        for (int i = 0; i < n; i++) {
+            ExtendedPoint p = points[from + i];
+            odd[i][0] = new ExtendedPoint(p);
+            twice.dbl(p);
+            for (int j = 1; j < size; j++) {
+                odd[i][j] = new ExtendedPoint().add(odd[i][j - 1], twice);
+            }
+            System.arraycopy(odd[i], 0, all, i * size, size);
+            digits[i] = ScalarRecoding.wnaf(ScalarRecoding.limbs(scalars[from + i]), bits, w);
+        }
+        ExtendedPoint.normalize(all);
+
+        ExtendedPoint acc = new ExtendedPoint();
+        ExtendedPoint neg = new ExtendedPoint();
+        for (int b = bits; b >= 0; b--) {
+            acc.dbl(acc);
+            for (int i = 0; i < n; i++) {
+                int d = digits[i][b];
+                if (d > 0) {
+                    acc.addMixed(acc, odd[i][d >> 1]);
+                } else if (d < 0) {
+                    acc.addMixed(acc, neg.neg(odd[i][-d >> 1]));
+                }
+            }
+        }
+        return acc;
+    }
+
+    /**
+     * Pippenger bucket method, the points must be normalized.
+     */
+    static ExtendedPoint pippenger(ExtendedPoint[] points, BigInteger[] scalars, int bits, boolean parallel) {
+        int n = points.length;
+        int c = window(n, bits);
+        int nWindows = ScalarRecoding.signedWindowCount(bits, c);
+        int[][] digits = new int[n][];
+        for (int i = 0; i < n; i++) {
+            digits[i] = ScalarRecoding.signedWindows(ScalarRecoding.limbs(scalars[i]), c, nWindows);
+        }
+
+        ExtendedPoint[] sums = new ExtendedPoint[nWindows];
+        IntStream windows = IntStream.range(0, nWindows);
+        (parallel ? windows.parallel() : windows).forEach(j -> sums[j] = windowSum(points, digits, j, c));
+
+        ExtendedPoint acc = new ExtendedPoint();
+        for (int j = nWindows - 1; j >= 0; j--) {
+            for (int s = 0; s < c; s++) {
+                acc.dbl(acc);
+            }
+            acc.add(acc, sums[j]);
+        }
+        return acc;
+    }
+
+    // sum of d * P over the digits d of window j
+    private static ExtendedPoint windowSum(ExtendedPoint[] points, int[][] digits, int j, int c) {
+        ExtendedPoint[] buckets = new ExtendedPoint[1 << (c - 1)];
+        for (int b = 0; b < buckets.length; b++) {
+            buckets[b] = new ExtendedPoint();
+        }
+        ExtendedPoint neg = new ExtendedPoint();
+        for (int i = 0; i < points.length; i++) {
+            int d = digits[i][j];
+            if (d > 0) {
+                buckets[d - 1].addMixed(buckets[d - 1], points[i]);
+            } else if (d < 0) {
+                buckets[-d - 1].addMixed(buckets[-d - 1], neg.neg(points[i]));
+            }
+        }
+
+        // sum of (b + 1) * bucket[b] as a sum of suffix sums
+        ExtendedPoint running = new ExtendedPoint();
+        ExtendedPoint sum = new ExtendedPoint();
+        for (int b = buckets.length - 1; b >= 0; b--) {
+            running.add(running, buckets[b]);
+            sum.add(sum, running);
+        }
+        return sum;
+    }
+
+    // window minimizing the additions, windows * (points + 2 * buckets)
+    static int window(int n, int bits) {
+        int best = 2;
+        long bestCost = Long.MAX_VALUE;
+        for (int c = 2; c <= 16; c++) {
+            long cost = (long) ScalarRecoding.signedWindowCount(bits, c) * (n + 2L * (1 << (c - 1)));
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = c;
+            }
+        }
+        return best;
+    }
+}
@@ -1,127 +1,210 @@
 package com.circomlib.hash;
 
-import com.circomlib.hash.blake.Blake256;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Pedersen hash of circomlib. The input bits, least significant first in each byte, are cut in
+ * windows of 4 : 3 bits of magnitude and a sign. Window w of segment s adds +/- (1 + m) * 32^w * G_s,
+ * a segment being 50 windows, that is 25 bytes.
+ *
+ * {@link #hash(byte[])} is stateless. The instance can also hash a stream with {@link #update} and
+ * {@link #doFinal()}, consuming each byte as it comes, in constant memory.
+ */
+public class Pedersen {
 
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+    private static final int WINDOWS_SIZE = PedersenGenerators.WINDOWS_SIZE;
+    private static final int N_WINDOWS_PER_SEGMENT = PedersenGenerators.N_WINDOWS_PER_SEGMENT;
 
-public class Pedersen {
+    // two windows per byte
+    private static final int BYTES_PER_SEGMENT = WINDOWS_SIZE * N_WINDOWS_PER_SEGMENT / 8;
 
-    private static final String GENPOINT_PREFIX = "PedersenGenerator";
-    private static final int WINDOWS_SIZE = 4;
-    private static final int N_WINDOWS_PER_SEGMENT = 50;
+    // below this many segments the parallel hash runs on the calling thread
+    static final int PARALLEL_MIN_SEGMENTS = 8;
 
-    private final Blake256 baseHash;
+    // inputs hashed by one task of hashAll, their packings share one inversion
+    static final int HASH_ALL_BLOCK = 64;
 
     private final BabyJub babyJub = new BabyJub();
 
-    private final HashMap<Integer, PairByteArray> bases = new HashMap();
+    private final Absorber stream = new Absorber();
 
     public Pedersen() {
-        this.baseHash = new Blake256();
+    }
+
+    /**
+     * Derives the generators of the first n segments ahead of time, for inputs up to 25 * n bytes.
+     * Generators are shared by all the instances and derived once per JVM in any case.
+     */
+    public static void prewarm(int n) {
+        PedersenGenerators.prewarm(n);
     }
 
     public byte[] hash(byte[] input) {
-        int bitsPerSegment = WINDOWS_SIZE * N_WINDOWS_PER_SEGMENT;
-        boolean[] bits = buffer2bits(input);
+        Absorber absorber = new Absorber();
+        absorber.update(input, 0, input.length);
+        return babyJub.packPoint(absorber.acc);
+    }
 
-        int nSegments = Math.floorDiv((bits.length - 1),(bitsPerSegment))+1;
+    /**
+     * Same as {@link #hash(byte[])}, the segments of a large input being spread over the common
+     * ForkJoin pool when parallel is set. Segment sums are independent and are combined by a
+     * tree reduction of point additions.
+     */
+    public byte[] hash(byte[] input, boolean parallel) {
+        int nSegments = (input.length + BYTES_PER_SEGMENT - 1) / BYTES_PER_SEGMENT;
+        if (!parallel || nSegments < PARALLEL_MIN_SEGMENTS) {
+            return hash(input);
+        }
+        ExtendedPoint sum = IntStream.range(0, nSegments).parallel()
+                .mapToObj(s -> segment(input, s))
+                .reduce(new ExtendedPoint(), (a, b) -> new ExtendedPoint().add(a, b));
+        return babyJub.packPoint(sum);
+    }
 
-        PairByteArray accP = new PairByteArray(longToBytes(0), longToBytes(1));
+    // windows of segment s alone
+    private static ExtendedPoint segment(byte[] input, int s) {
+        Absorber absorber = new Absorber();
+        absorber.length = (long) s * BYTES_PER_SEGMENT;
+        int from = s * BYTES_PER_SEGMENT;
+        absorber.update(input, from, Math.min(BYTES_PER_SEGMENT, input.length - from));
+        return absorber.acc;
+    }
 
-        for (int s=0; s<nSegments; s++) {
-            int nWindows;
-            if (s == nSegments-1) {
-                nWindows = Math.floorDiv(((bits.length - (nSegments - 1) * bitsPerSegment) - 1), WINDOWS_SIZE) +1;
-            } else {
-                nWindows = N_WINDOWS_PER_SEGMENT;
+    /**
+     * Hashes independent inputs over the common ForkJoin pool, results in the input order.
+     * Workers read the shared generator tables and reuse their own accumulator from an input
+     * to the next.
+     */
+    public byte[][] hashAll(byte[][] inputs) {
+        int nBlocks = (inputs.length + HASH_ALL_BLOCK - 1) / HASH_ALL_BLOCK;
+        byte[][] result = new byte[inputs.length][];
+        IntStream.range(0, nBlocks).parallel().forEach(b -> {
+            int from = b * HASH_ALL_BLOCK;
+            int to = Math.min(inputs.length, from + HASH_ALL_BLOCK);
+            Absorber absorber = new Absorber();
+            ExtendedPoint[] sums = new ExtendedPoint[to - from];
+            for (int i = from; i < to; i++) {
+                absorber.reset();
+                absorber.update(inputs[i], 0, inputs[i].length);
+                sums[i - from] = new ExtendedPoint(absorber.acc);
             }
-            byte[] escalar = longToBytes(0);
-            byte[] exp = longToBytes(1);
-
-            for (int w=0; w < nWindows; w++) {
-                int o = s*bitsPerSegment + w*WINDOWS_SIZE;
-                byte[] acc = longToBytes(1);
-
-                for (int b=0; (b<(WINDOWS_SIZE-1))&&(o<bits.length) ; b++) {
-                    if (bits[o]) {
-                        acc = ByteArrayOperator.add(acc, ByteArrayOperator.shiftLeft(longToBytes(1), b) );
-                    }
-                    o++;
-                }
-                if (o<bits.length) {
-                    if (bits[o]) {
-                        acc = ByteArrayOperator.neg(acc);
-                    }
-                    o++;
-                }
-                escalar = ByteArrayOperator.add(escalar, ByteArrayOperator.mul(acc, exp));
-                exp = ByteArrayOperator.shiftLeft(exp, WINDOWS_SIZE+1);
-            }
-            if (ByteArrayOperator.isNeg(escalar)) {
-                escalar = ByteArrayOperator.add( escalar, babyJub.subOrder);
+            System.arraycopy(babyJub.packPoints(sums), 0, result, from, to - from);
+        });
+        return result;
+    }
+
+    public List<byte[]> hashAll(List<byte[]> inputs) {
+        return Arrays.asList(hashAll(inputs.toArray(new byte[0][])));
+    }
+
+    /**
+     * Hashes the inputs chunkSize at a time, so that at most chunkSize inputs and results are
+     * held in memory, and hands the results to the consumer in the input order.
+     */
+    public void hashAll(Spliterator<byte[]> inputs, int chunkSize, Consumer<byte[]> results) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        List<byte[]> chunk = new ArrayList<>(chunkSize);
+        inputs.forEachRemaining(input -> {
+            chunk.add(input);
+            if (chunk.size() == chunkSize) {
+                flush(chunk, results);
             }
+        });
+        flush(chunk, results);
+    }
 
-            accP = babyJub.addPoint(accP, babyJub.mulPointEscalar(this.getBasePoint(s), escalar));
+    private void flush(List<byte[]> chunk, Consumer<byte[]> results) {
+        for (byte[] r : hashAll(chunk.toArray(new byte[0][]))) {
+            results.accept(r);
         }
-        return babyJub.packPoint(accP);
+        chunk.clear();
     }
 
+    public void update(byte in) {
+        stream.update(in);
+    }
 
-    private PairByteArray getBasePoint(int pointIdx) {
-        if (this.bases.containsKey(pointIdx)) {
-            return this.bases.get(pointIdx);
-        }
-        PairByteArray p= null;
-        int tryIdx = 0;
-        while (p==null) {
-            String s = GENPOINT_PREFIX + "_" + this.padLeftZeros(pointIdx, 32) + "_" + this.padLeftZeros(tryIdx, 32);
-            byte[] h = this.baseHash.digest(s.getBytes(StandardCharsets.UTF_8));
-            h[31] = (byte)(h[31] & 0xBF);  // Set 255th bit to 0 (256th is the signal and 254th is the last possible bit to 1)
-            p = babyJub.unpackPoint(h);
-            tryIdx++;
-        }
+    public void update(byte[] in) {
+        stream.update(in, 0, in.length);
+    }
 
-        PairByteArray p8 = babyJub.mulPointEscalar(p, new BigInteger("8",10).toByteArray());
+    public void update(byte[] in, int inOff, int len) {
+        stream.update(in, inOff, len);
+    }
 
-        if (!babyJub.inSubgroup(p8)) {
-            throw new Error("Point not in curve");
+    /**
+     * Consumes the remaining bytes of the buffer.
+     */
+    public void update(ByteBuffer in) {
+        if (in.hasArray()) {
+            stream.update(in.array(), in.arrayOffset() + in.position(), in.remaining());
+            in.position(in.limit());
+        } else {
+            while (in.hasRemaining()) {
+                stream.update(in.get());
+            }
         }
+    }
+
+    /**
+     * Packed hash of the bytes given since the last doFinal, same as {@link #hash(byte[])} on
+     * their concatenation. Leaves the stream reset.
+     */
+    public byte[] doFinal() {
+        byte[] result = babyJub.packPoint(stream.acc);
+        reset();
+        return result;
+    }
 
-        this.bases.put(pointIdx,p8);
-        return p8;
+    public void reset() {
+        stream.reset();
     }
 
-    private String padLeftZeros(int idx, int n) {
-        StringBuilder sidx = new StringBuilder("" + idx);
-        while (sidx.length() < n) {
-            sidx.insert(0, "0");
+    // running sum of the windows of the bytes absorbed so far
+    private static final class Absorber {
+
+        private final ExtendedPoint acc = new ExtendedPoint();
+        private final ExtendedPoint neg = new ExtendedPoint();
+
+        // tables of the current segment
+        private ExtendedPoint[][] table;
+
+        private long length;
+
+        void update(byte[] in, int inOff, int len) {
+            for (int i = inOff; i < inOff + len; i++) {
+                update(in[i]);
+            }
         }
-        return sidx.toString();
-    }
-
-    private boolean[] buffer2bits(byte[] buff) {
-        boolean[] result = new boolean[buff.length * 8];
-        for (int i=0; i<buff.length; i++) {
-            byte b = buff[i];
-            result[i*8] = (b & 0x01) > 0;
-            result[i*8+1] = ((b & 0x02) >> 1) > 0;
-            result[i*8+2] = ((b & 0x04) >> 2) > 0;
-            result[i*8+3] = ((b & 0x08) >> 3) > 0;
-            result[i*8+4] = ((b & 0x10) >> 4) > 0;
-            result[i*8+5] = ((b & 0x20) >> 5) > 0;
-            result[i*8+6] = ((b & 0x40) >> 6) > 0;
-            result[i*8+7] = ((b & 0x80) >> 7) > 0;
+
+        void update(byte b) {
+            int w = (int) (length % BYTES_PER_SEGMENT) * 2;
+            if (w == 0) {
+                table = PedersenGenerators.table((int) (length / BYTES_PER_SEGMENT));
+            }
+            window(table[w], b & 0x0F);
+            window(table[w + 1], (b >> 4) & 0x0F);
+            length++;
         }
-        return result;
-    }
 
-    private byte[] longToBytes(long x) {
-        BigInteger ba = new BigInteger(String.valueOf(x));
-        byte[] val = ba.toByteArray();
-        byte[] result = new byte[32];
-        System.arraycopy(val, 0, result, 32 - val.length, val.length);
-        return result;
+        // low 3 bits select (1 + m) * 32^w * G, the high one negates it
+        private void window(ExtendedPoint[] multiples, int bits) {
+            ExtendedPoint p = multiples[bits & 0x07];
+            acc.addMixed(acc, (bits & 0x08) != 0 ? neg.neg(p) : p);
+        }
+
+        void reset() {
+            acc.setIdentity();
+            table = null;
+            length = 0;
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.circomlib.hash;
+
+import com.circomlib.provider.digest.Blake256;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Process wide registry of the Pedersen segment generators and of their window tables.
+ *
+ * A generator is derived once per JVM : Blake256 try and increment, unpacking, multiplication by
+ * the cofactor and subgroup check. Lookups of a derived segment do not lock. A missing segment
+ * is derived outside of the map, so that no bin stays locked during the derivation, then published
+ * with putIfAbsent : threads racing on the same segment may each derive it, and all of them get
+ * the first table published. Tables are never modified once published.
+ */
+final class PedersenGenerators {
+
+    private static final String GENPOINT_PREFIX = "PedersenGenerator";
+
+    static final int WINDOWS_SIZE = 4;
+    static final int N_WINDOWS_PER_SEGMENT = 50;
+
+    // TABLES.get(s)[w][k - 1] = k * 32^w * G_s, Z = 1
+    private static final ConcurrentHashMap<Integer, ExtendedPoint[][]> TABLES = new ConcurrentHashMap<>();
+
+    private PedersenGenerators() {
+    }
+
+    /**
+     * Window table of segment s, derived on first use.
+     */
+    static ExtendedPoint[][] table(int segment) {
+        ExtendedPoint[][] table = TABLES.get(segment);
+        if (table != null) {
+            return table;
+        }
+        table = derive(segment);
+        ExtendedPoint[][] published = TABLES.putIfAbsent(segment, table);
+        return published != null ? published : table;
+    }
+
+    /**
+     * Derives the tables of the first n segments, spread over the available cores.
+     */
+    static void prewarm(int n) {
+        IntStream.range(0, n).parallel().forEach(PedersenGenerators::table);
+    }
+
+    private static ExtendedPoint[][] derive(int pointIdx) {
+        Blake256 baseHash = new Blake256();
+        BabyJub babyJub = new BabyJub();
+        PairByteArray p= null;
+        int tryIdx = 0;
+        while (p==null) {
+            String s = GENPOINT_PREFIX + "_" + padLeftZeros(pointIdx, 32) + "_" + padLeftZeros(tryIdx, 32);
+            byte[] h = baseHash.digest(s.getBytes(StandardCharsets.UTF_8));
+            h[31] = (byte)(h[31] & 0xBF);  // Set 255th bit to 0 (256th is the signal and 254th is the last possible bit to 1)
+            p = babyJub.unpackPoint(h);
+            tryIdx++;
+        }
+
+        ExtendedPoint p8 = ExtendedPoint.fromPair(p);
+        p8.dbl(p8).dbl(p8).dbl(p8);
+
+        if (!babyJub.inSubgroup(p8)) {
+            throw new Error("Point not in curve");
+        }
+        return windowTable(p8);
+    }
+
+    /**
+     * The 8 values a window can take times the window weight, 32^w * G for the 50 windows of a
+     * segment, normalized together so that the hash only needs mixed additions.
+     */
+    private static ExtendedPoint[][] windowTable(ExtendedPoint g) {
+        int size = 1 << (WINDOWS_SIZE - 1);
+        ExtendedPoint[][] table = new ExtendedPoint[N_WINDOWS_PER_SEGMENT][size];
+        ExtendedPoint[] all = new ExtendedPoint[N_WINDOWS_PER_SEGMENT * size];
+        ExtendedPoint b = new ExtendedPoint(g);
+        for (int w = 0; w < N_WINDOWS_PER_SEGMENT; w++) {
+            table[w][0] = new ExtendedPoint(b);
+            for (int k = 1; k < size; k++) {
+                table[w][k] = new ExtendedPoint().add(table[w][k - 1], b);
+            }
+            System.arraycopy(table[w], 0, all, w * size, size);
+            for (int d = 0; d <= WINDOWS_SIZE; d++) {
+                b.dbl(b);
+            }
+        }
+        ExtendedPoint.normalize(all);
+        return table;
+    }
+
+    private static String padLeftZeros(int idx, int n) {
+        StringBuilder sidx = new StringBuilder("" + idx);
+        while (sidx.length() < n) {
+            sidx.insert(0, "0");
+        }
+        return sidx.toString();
+    }
+}
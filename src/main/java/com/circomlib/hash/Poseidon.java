@@ -0,0 +1,189 @@
+package com.circomlib.hash;
+
+import java.util.stream.IntStream;
+
+/**
+ * Poseidon hash of circomlib, for 1 to 16 inputs : the permutation of width t = n + 1 runs on the
+ * state (0, in_1, .., in_n) and the hash is its first element.
+ *
+ * The permutation is the optimized form of {@link PoseidonConstants} : 4 full rounds, the partial
+ * rounds with a single s-box, a constant and a sparse matrix in about 2t multiplications each,
+ * then 4 full rounds. Its rounds work in place on the state and a scratch row, and allocate nothing.
+ */
+public class Poseidon {
+
+    public static final int MAX_INPUTS = PoseidonConstants.MAX_WIDTH - 1;
+
+    // inputs hashed by one task of the batch hash
+    static final int BATCH_BLOCK = 64;
+
+    public Poseidon() {
+    }
+
+    /**
+     * Hash of field elements given with the {@link java.math.BigInteger#toByteArray()} layout,
+     * returned with the same layout.
+     */
+    public byte[] hash(byte[][] inputs) {
+        Permutation permutation = new Permutation(widthOf(inputs.length));
+        Fr[] state = new Fr[inputs.length + 1];
+        state[0] = new Fr();
+        for (int i = 0; i < inputs.length; i++) {
+            state[i + 1] = Fr.fromBytes(inputs[i]);
+        }
+        permutation.permute(state);
+        return state[0].toByteArray();
+    }
+
+    public Fr hash(Fr... inputs) {
+        Permutation permutation = new Permutation(widthOf(inputs.length));
+        Fr[] state = new Fr[inputs.length + 1];
+        state[0] = new Fr();
+        for (int i = 0; i < inputs.length; i++) {
+            state[i + 1] = new Fr(inputs[i]);
+        }
+        permutation.permute(state);
+        return state[0];
+    }
+
+    /**
+     * Poseidon permutation of the state, in place, its length being the width t.
+     */
+    public void permute(Fr[] state) {
+        new Permutation(widthOf(state.length - 1)).permute(state);
+    }
+
+    /**
+     * Hashes independent inputs, each made of nInputs field elements, over the common ForkJoin pool.
+     * Results are in the input order.
+     */
+    public byte[][] hashAll(byte[][][] inputs, int nInputs) {
+        PoseidonConstants constants = widthOf(nInputs);
+        byte[][] result = new byte[inputs.length][];
+        int nBlocks = (inputs.length + BATCH_BLOCK - 1) / BATCH_BLOCK;
+        IntStream.range(0, nBlocks).parallel().forEach(b -> {
+            Permutation permutation = new Permutation(constants);
+            Fr[] state = newState(constants.t);
+            for (int i = b * BATCH_BLOCK; i < Math.min(inputs.length, (b + 1) * BATCH_BLOCK); i++) {
+                if (inputs[i].length != nInputs) {
+                    throw new IllegalArgumentException("Input " + i + " has " + inputs[i].length + " elements, expected " + nInputs);
+                }
+                state[0].setZero();
+                for (int j = 0; j < nInputs; j++) {
+                    state[j + 1].setBytes(inputs[i][j]);
+                }
+                permutation.permute(state);
+                result[i] = state[0].toByteArray();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * hash of count independent inputs of nInputs elements each. Elements are 32 bytes big endian
+     * in flat arrays, element j of input i at offset 32 * (nInputs * i + j), and output i at offset
+     * 32 * i. The inputs go by blocks of {@link #BATCH_BLOCK}, spread over the common ForkJoin pool
+     * when parallel is set.
+     */
+    public void hash(byte[] inputs, int nInputs, int count, byte[] out, boolean parallel) {
+        PoseidonConstants constants = widthOf(nInputs);
+        int nBlocks = (count + BATCH_BLOCK - 1) / BATCH_BLOCK;
+        IntStream blocks = IntStream.range(0, nBlocks);
+        (parallel ? blocks.parallel() : blocks).forEach(b -> {
+            Permutation permutation = new Permutation(constants);
+            Fr[] state = newState(constants.t);
+            byte[] be = new byte[33];
+            byte[] le = new byte[32];
+            for (int i = b * BATCH_BLOCK; i < Math.min(count, (b + 1) * BATCH_BLOCK); i++) {
+                state[0].setZero();
+                for (int j = 0; j < nInputs; j++) {
+                    System.arraycopy(inputs, (nInputs * i + j) * 32, be, 1, 32);
+                    state[j + 1].setBytes(be);
+                }
+                permutation.permute(state);
+                state[0].toBytesLE(le, 0);
+                for (int j = 0; j < 32; j++) {
+                    out[i * 32 + j] = le[31 - j];
+                }
+            }
+        });
+    }
+
+    private static PoseidonConstants widthOf(int nInputs) {
+        if (nInputs < 1 || nInputs > MAX_INPUTS) {
+            throw new IllegalArgumentException("Poseidon takes between 1 and " + MAX_INPUTS + " inputs");
+        }
+        return PoseidonConstants.of(nInputs + 1);
+    }
+
+    private static Fr[] newState(int t) {
+        Fr[] state = new Fr[t];
+        for (int i = 0; i < t; i++) {
+            state[i] = new Fr();
+        }
+        return state;
+    }
+
+    // permutation of one width with its scratch elements, reused from a state to the next
+    private static final class Permutation {
+
+        private final PoseidonConstants constants;
+        private final Fr[] scratch;
+        private final Fr tmp = new Fr();
+
+        Permutation(PoseidonConstants constants) {
+            this.constants = constants;
+            this.scratch = newState(constants.t);
+        }
+
+        void permute(Fr[] state) {
+            int half = PoseidonConstants.N_ROUNDS_F / 2;
+            for (int r = 0; r < half; r++) {
+                fullRound(state, constants.fullConstants[r], r < half - 1 ? constants.m : constants.p);
+            }
+            for (int r = 0; r < constants.nRoundsP; r++) {
+                partialRound(state, constants.partialConstants[r], constants.sparse[r]);
+            }
+            for (int r = half; r < PoseidonConstants.N_ROUNDS_F; r++) {
+                fullRound(state, constants.fullConstants[r], constants.m);
+            }
+        }
+
+        private void fullRound(Fr[] state, Fr[] c, Fr[][] m) {
+            int t = state.length;
+            for (int i = 0; i < t; i++) {
+                sbox(state[i].add(c[i]));
+            }
+            for (int i = 0; i < t; i++) {
+                Fr[] row = m[i];
+                Fr sum = scratch[i].mul(row[0], state[0]);
+                for (int j = 1; j < t; j++) {
+                    sum.add(tmp.mul(row[j], state[j]));
+                }
+            }
+            for (int i = 0; i < t; i++) {
+                state[i].set(scratch[i]);
+            }
+        }
+
+        // s = [[s_0, s_1 .. s_(t-1)], [s_t .. s_(2t-2), I]]
+        private void partialRound(Fr[] state, Fr c, Fr[] s) {
+            int t = state.length;
+            Fr first = state[0];
+            sbox(first.add(c));
+            Fr sum = scratch[0].mul(s[0], first);
+            for (int j = 1; j < t; j++) {
+                sum.add(tmp.mul(s[j], state[j]));
+            }
+            for (int i = 1; i < t; i++) {
+                state[i].add(tmp.mul(s[t + i - 1], first));
+            }
+            first.set(sum);
+        }
+
+        private void sbox(Fr x) {
+            tmp.square(x).square();
+            x.mul(tmp);
+        }
+    }
+}
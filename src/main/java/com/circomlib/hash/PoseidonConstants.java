@@ -0,0 +1,294 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide registry of the Poseidon parameters of circomlib, one entry per width t = 2..17,
+ * derived once and already in Montgomery form. A missing width is derived outside of the map, so
+ * that no bin stays locked during the derivation, then published with putIfAbsent.
+ *
+ * The round constants and the Cauchy MDS matrix come from the Grain LFSR of the Poseidon reference
+ * generator (prime field, x^5, 254 bits, 8 full rounds and the partial rounds of {@link #N_ROUNDS_P}).
+ * They are then rewritten in the optimized form : the constants of a partial round are moved to
+ * the first element, the rest being pushed through the MDS matrix to the next round, and the
+ * matrix of each partial round is factored into a sparse matrix and a matrix leaving the first
+ * element alone, which is pushed back to the previous round. The last full round of the first half
+ * ends with the dense matrix P that carries the factors of all the partial rounds.
+ *
+ * The arrays are shared by every hasher and must never be modified.
+ */
+final class PoseidonConstants {
+
+    static final int MIN_WIDTH = 2;
+    static final int MAX_WIDTH = 17;
+
+    static final int N_ROUNDS_F = 8;
+
+    // partial rounds of width t at t - 2
+    static final int[] N_ROUNDS_P = {56, 57, 56, 60, 60, 63, 64, 63, 60, 66, 60, 65, 70, 60, 64, 68};
+
+    private static final int FIELD_BITS = 254;
+
+    private static final ConcurrentHashMap<Integer, PoseidonConstants> REGISTRY = new ConcurrentHashMap<>();
+
+    final int t;
+    final int nRoundsP;
+
+    // reference parameters : constants of round r at r * t, state = m * state
+    final Fr[] c;
+    final Fr[][] m;
+
+    // optimized form : constants of the full rounds, then the first element ones of the partial rounds
+    final Fr[][] fullConstants;
+    final Fr[] partialConstants;
+
+    // matrix of the last full round of the first half
+    final Fr[][] p;
+
+    // sparse matrix of partial round r : its first row then its first column below the diagonal
+    final Fr[][] sparse;
+
+    private PoseidonConstants(int t) {
+        this.t = t;
+        this.nRoundsP = N_ROUNDS_P[t - MIN_WIDTH];
+        Grain grain = new Grain(t, N_ROUNDS_F, nRoundsP);
+        this.c = roundConstants(grain, (N_ROUNDS_F + nRoundsP) * t);
+        this.m = mds(grain, t);
+
+        int half = N_ROUNDS_F / 2;
+        Fr[][] constants = new Fr[N_ROUNDS_F + nRoundsP][t];
+        for (int r = 0; r < constants.length; r++) {
+            for (int i = 0; i < t; i++) {
+                constants[r][i] = new Fr(c[r * t + i]);
+            }
+        }
+        this.partialConstants = new Fr[nRoundsP];
+        Fr[] rest = new Fr[t];
+        Fr tmp = new Fr();
+        for (int r = half; r < half + nRoundsP; r++) {
+            rest[0] = new Fr();
+            for (int i = 1; i < t; i++) {
+                rest[i] = constants[r][i];
+            }
+            for (int i = 0; i < t; i++) {
+                for (int j = 0; j < t; j++) {
+                    constants[r + 1][i].add(tmp.mul(m[i][j], rest[j]));
+                }
+            }
+            partialConstants[r - half] = constants[r][0];
+        }
+        this.fullConstants = new Fr[N_ROUNDS_F][];
+        for (int r = 0; r < N_ROUNDS_F; r++) {
+            fullConstants[r] = constants[r < half ? r : r + nRoundsP];
+        }
+
+        this.sparse = new Fr[nRoundsP][];
+        Fr[][] x = m;
+        for (int r = nRoundsP - 1; r >= 0; r--) {
+            Fr[][] inner = new Fr[t - 1][t - 1];
+            Fr[][] innerT = new Fr[t - 1][t - 1];
+            for (int i = 1; i < t; i++) {
+                for (int j = 1; j < t; j++) {
+                    inner[i - 1][j - 1] = x[i][j];
+                    innerT[j - 1][i - 1] = x[i][j];
+                }
+            }
+            // x = sparse * diag(1, inner) with sparse = [[x00, u], [x_i0, I]] and u * inner = x_0j
+            Fr[] firstRow = new Fr[t - 1];
+            System.arraycopy(x[0], 1, firstRow, 0, t - 1);
+            Fr[] u = solve(innerT, firstRow);
+            Fr[] s = new Fr[2 * t - 1];
+            s[0] = x[0][0];
+            System.arraycopy(u, 0, s, 1, t - 1);
+            for (int i = 1; i < t; i++) {
+                s[t + i - 1] = x[i][0];
+            }
+            sparse[r] = s;
+            x = mulBlock(inner, m);
+        }
+        this.p = x;
+    }
+
+    static PoseidonConstants of(int t) {
+        if (t < MIN_WIDTH || t > MAX_WIDTH) {
+            throw new IllegalArgumentException("Poseidon width must be between " + MIN_WIDTH + " and " + MAX_WIDTH);
+        }
+        PoseidonConstants constants = REGISTRY.get(t);
+        if (constants != null) {
+            return constants;
+        }
+        constants = new PoseidonConstants(t);
+        PoseidonConstants published = REGISTRY.putIfAbsent(t, constants);
+        return published != null ? published : constants;
+    }
+
+    /**
+     * Uniform values below p, a draw of 254 bits above p being dropped.
+     */
+    private static Fr[] roundConstants(Grain grain, int n) {
+        Fr[] result = new Fr[n];
+        for (int i = 0; i < n; i++) {
+            BigInteger x = grain.next(FIELD_BITS);
+            while (x.compareTo(Fr.MODULUS) >= 0) {
+                x = grain.next(FIELD_BITS);
+            }
+            result[i] = Fr.fromBigInteger(x);
+        }
+        return result;
+    }
+
+    /**
+     * Cauchy matrix m_ij = 1 / (x_i + y_j) for 2t distinct draws x_0..x_(t-1), y_0..y_(t-1).
+     */
+    private static Fr[][] mds(Grain grain, int t) {
+        while (true) {
+            BigInteger[] draws = new BigInteger[2 * t];
+            Set<BigInteger> distinct = new HashSet<>();
+            while (distinct.size() != 2 * t) {
+                distinct.clear();
+                for (int i = 0; i < 2 * t; i++) {
+                    draws[i] = grain.next(FIELD_BITS).mod(Fr.MODULUS);
+                    distinct.add(draws[i]);
+                }
+            }
+            Fr[][] result = new Fr[t][t];
+            boolean invertible = true;
+            for (int i = 0; i < t && invertible; i++) {
+                for (int j = 0; j < t && invertible; j++) {
+                    Fr sum = Fr.fromBigInteger(draws[i].add(draws[t + j]));
+                    invertible = !sum.isZero();
+                    result[i][j] = sum.inverse();
+                }
+            }
+            if (invertible) {
+                return result;
+            }
+        }
+    }
+
+    // a * x = b by Gauss-Jordan elimination, a is consumed
+    private static Fr[] solve(Fr[][] a, Fr[] b) {
+        int n = b.length;
+        Fr[] x = new Fr[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = new Fr(b[i]);
+        }
+        Fr f = new Fr();
+        Fr tmp = new Fr();
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            while (a[pivot][col].isZero()) {
+                pivot++;
+            }
+            Fr[] row = a[pivot];
+            a[pivot] = a[col];
+            a[col] = row;
+            Fr swap = x[pivot];
+            x[pivot] = x[col];
+            x[col] = swap;
+
+            Fr inv = new Fr().inverse(a[col][col]);
+            for (int j = col; j < n; j++) {
+                a[col][j] = new Fr().mul(a[col][j], inv);
+            }
+            x[col] = new Fr().mul(x[col], inv);
+            for (int i = 0; i < n; i++) {
+                if (i == col || a[i][col].isZero()) {
+                    continue;
+                }
+                f.set(a[i][col]);
+                for (int j = col; j < n; j++) {
+                    a[i][j] = new Fr().sub(a[i][j], tmp.mul(f, a[col][j]));
+                }
+                x[i] = new Fr().sub(x[i], tmp.mul(f, x[col]));
+            }
+        }
+        return x;
+    }
+
+    // diag(1, inner) * m
+    private static Fr[][] mulBlock(Fr[][] inner, Fr[][] m) {
+        int t = m.length;
+        Fr[][] result = new Fr[t][t];
+        Fr tmp = new Fr();
+        result[0] = m[0];
+        for (int i = 1; i < t; i++) {
+            for (int j = 0; j < t; j++) {
+                Fr sum = new Fr();
+                for (int k = 1; k < t; k++) {
+                    sum.add(tmp.mul(inner[i - 1][k - 1], m[k][j]));
+                }
+                result[i][j] = sum;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Self shrinking 80 bits Grain LFSR of the Poseidon reference generator, seeded with the
+     * parameters : field type, s-box, field size, width and round numbers, then 30 ones.
+     */
+    static final class Grain {
+
+        private final boolean[] state = new boolean[80];
+
+        // index of bit 0 of the register
+        private int pos;
+
+        Grain(int t, int nRoundsF, int nRoundsP) {
+            int i = 0;
+            i = put(1, 2, i);
+            i = put(0, 4, i);
+            i = put(FIELD_BITS, 12, i);
+            i = put(t, 12, i);
+            i = put(nRoundsF, 10, i);
+            i = put(nRoundsP, 10, i);
+            while (i < 80) {
+                state[i++] = true;
+            }
+            for (int k = 0; k < 160; k++) {
+                step();
+            }
+        }
+
+        private int put(int value, int bits, int i) {
+            for (int b = bits - 1; b >= 0; b--) {
+                state[i++] = ((value >> b) & 1) == 1;
+            }
+            return i;
+        }
+
+        private boolean step() {
+            boolean bit = bit(62) ^ bit(51) ^ bit(38) ^ bit(23) ^ bit(13) ^ bit(0);
+            state[pos] = bit;
+            pos = (pos + 1) % 80;
+            return bit;
+        }
+
+        private boolean bit(int i) {
+            return state[(pos + i) % 80];
+        }
+
+        // the second bit of each pair, kept when the first one is set
+        boolean nextBit() {
+            while (!step()) {
+                step();
+            }
+            return step();
+        }
+
+        // n bits, most significant first
+        BigInteger next(int n) {
+            byte[] bytes = new byte[(n + 7) / 8 + 1];
+            for (int i = n - 1; i >= 0; i--) {
+                if (nextBit()) {
+                    bytes[bytes.length - 1 - i / 8] |= (byte) (1 << (i % 8));
+                }
+            }
+            return new BigInteger(bytes);
+        }
+    }
+}
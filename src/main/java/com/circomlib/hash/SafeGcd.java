@@ -0,0 +1,238 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Constant time modular inversion by Bernstein-Yang divsteps ("safegcd"), for any odd modulus.
+ *
+ * Values are kept in signed 30 bits limbs so that every limb product fits in a long. Each iteration
+ * runs 30 branch free divsteps on the low limbs only, then applies the resulting 2x2 matrix to the
+ * full (f, g) and (d, e) pairs. The number of iterations is the Bernstein-Yang bound for the modulus
+ * size, independent of the input, and no step branches on the data.
+ *
+ * Port of the signed30 variant of libsecp256k1 modinv32, using the original divstep (delta = 1).
+ * Contexts are immutable and shared per modulus, use {@link #of(BigInteger)}.
+ */
+public final class SafeGcd {
+
+    private static final ConcurrentHashMap<BigInteger, SafeGcd> CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final int M30 = 0x3FFFFFFF;
+
+    public final BigInteger m;
+
+    // number of signed 30 bits limbs, enough for values in (-2m, 2m)
+    private final int size;
+
+    // modulus in signed 30 bits limbs
+    private final int[] mod;
+
+    // m^-1 mod 2^30
+    private final int inv30;
+
+    // number of 30 divsteps batches
+    private final int iterations;
+
+    private SafeGcd(BigInteger m) {
+        if (!m.testBit(0) || m.compareTo(BigInteger.ONE) <= 0) {
+            throw new IllegalArgumentException("m must be odd and greater than 1");
+        }
+        this.m = m;
+        int bits = m.bitLength();
+        this.size = (bits + 2 + 29) / 30;
+        this.mod = new int[size];
+        fromLimbs(Montgomery.toLimbs(m, (bits + 63) / 64), mod);
+        this.inv30 = m.modInverse(BigInteger.ONE.shiftLeft(30)).intValue();
+        int steps = bits < 46 ? (49 * bits + 80) / 17 : (49 * bits + 57) / 17;
+        this.iterations = (steps + 29) / 30;
+    }
+
+    /**
+     * Shared context for the modulus m.
+     */
+    public static SafeGcd of(BigInteger m) {
+        return CONTEXTS.computeIfAbsent(m, SafeGcd::new);
+    }
+
+    /**
+     * r = a^-1 mod m for canonical little endian 64 bits limbs, zero is mapped to zero.
+     * r may be the same array as a.
+     */
+    public void inverse(long[] a, long[] r) {
+        int[] d = new int[size];
+        int[] e = new int[size];
+        int[] f = mod.clone();
+        int[] g = new int[size];
+        int[] t = new int[4];
+        e[0] = 1;
+        fromLimbs(a, g);
+
+        int eta = -1;
+        for (int i = 0; i < iterations; i++) {
+            eta = divsteps(eta, f[0], g[0], t);
+            updateDe(d, e, t);
+            updateFg(f, g, t);
+        }
+
+        // g is now zero and f = +/-1 (or +/-m for a zero input, giving d = 0)
+        normalize(d, f[size - 1]);
+        toLimbs(d, r);
+    }
+
+    public BigInteger inverse(BigInteger a) {
+        Montgomery engine = Montgomery.of(m);
+        long[] x = engine.toLimbs(a.mod(m));
+        inverse(x, x);
+        return engine.toBigInteger(x);
+    }
+
+    /**
+     * 30 divsteps on the low bits of f and g, starting from eta = -delta. Writes the transition
+     * matrix scaled by 2^30 in t = {u, v, q, r} and returns the new eta.
+     */
+    private static int divsteps(int eta, int f, int g, int[] t) {
+        int u = 1, v = 0, q = 0, r = 1;
+        for (int i = 0; i < 30; i++) {
+            // c1 : delta > 0, c2 : g odd
+            int c1 = eta >> 31;
+            int c2 = -(g & 1);
+            int x = (f ^ c1) - c1;
+            int y = (u ^ c1) - c1;
+            int z = (v ^ c1) - c1;
+            g += x & c2;
+            q += y & c2;
+            r += z & c2;
+            c1 &= c2;
+            // swap : delta = 1 - delta, otherwise delta = 1 + delta
+            eta = (eta ^ c1) - 1 - c1;
+            f += g & c1;
+            u += q & c1;
+            v += r & c1;
+            g >>>= 1;
+            u <<= 1;
+            v <<= 1;
+        }
+        t[0] = u;
+        t[1] = v;
+        t[2] = q;
+        t[3] = r;
+        return eta;
+    }
+
+    /**
+     * (d, e) = t * (d, e) / 2^30 mod m, multiples of m are added so that the division is exact.
+     * Keeps d and e in (-2m, m).
+     */
+    private void updateDe(int[] d, int[] e, int[] t) {
+        long u = t[0], v = t[1], q = t[2], r = t[3];
+        int sd = d[size - 1] >> 31;
+        int se = e[size - 1] >> 31;
+        int md = (t[0] & sd) + (t[1] & se);
+        int me = (t[2] & sd) + (t[3] & se);
+        long di = d[0];
+        long ei = e[0];
+        long cd = u * di + v * ei;
+        long ce = q * di + r * ei;
+        md -= (inv30 * (int) cd + md) & M30;
+        me -= (inv30 * (int) ce + me) & M30;
+        cd += (long) mod[0] * md;
+        ce += (long) mod[0] * me;
+        cd >>= 30;
+        ce >>= 30;
+        for (int i = 1; i < size; i++) {
+            di = d[i];
+            ei = e[i];
+            cd += u * di + v * ei + (long) mod[i] * md;
+            ce += q * di + r * ei + (long) mod[i] * me;
+            d[i - 1] = (int) cd & M30;
+            cd >>= 30;
+            e[i - 1] = (int) ce & M30;
+            ce >>= 30;
+        }
+        d[size - 1] = (int) cd;
+        e[size - 1] = (int) ce;
+    }
+
+    /**
+     * (f, g) = t * (f, g) / 2^30, the division is exact by construction of t.
+     */
+    private void updateFg(int[] f, int[] g, int[] t) {
+        long u = t[0], v = t[1], q = t[2], r = t[3];
+        long fi = f[0];
+        long gi = g[0];
+        long cf = (u * fi + v * gi) >> 30;
+        long cg = (q * fi + r * gi) >> 30;
+        for (int i = 1; i < size; i++) {
+            fi = f[i];
+            gi = g[i];
+            cf += u * fi + v * gi;
+            cg += q * fi + r * gi;
+            f[i - 1] = (int) cf & M30;
+            cf >>= 30;
+            g[i - 1] = (int) cg & M30;
+            cg >>= 30;
+        }
+        f[size - 1] = (int) cf;
+        g[size - 1] = (int) cg;
+    }
+
+    /**
+     * Brings x from (-2m, m) to [0, m), negated when sign is negative.
+     */
+    private void normalize(int[] x, int sign) {
+        int condAdd = x[size - 1] >> 31;
+        for (int i = 0; i < size; i++) {
+            x[i] += mod[i] & condAdd;
+        }
+        int condNegate = sign >> 31;
+        for (int i = 0; i < size; i++) {
+            x[i] = (x[i] ^ condNegate) - condNegate;
+        }
+        propagate(x);
+        condAdd = x[size - 1] >> 31;
+        for (int i = 0; i < size; i++) {
+            x[i] += mod[i] & condAdd;
+        }
+        propagate(x);
+    }
+
+    private void propagate(int[] x) {
+        for (int i = 0; i < size - 1; i++) {
+            x[i + 1] += x[i] >> 30;
+            x[i] &= M30;
+        }
+    }
+
+    // 64 bits limbs to 30 bits limbs
+    private void fromLimbs(long[] a, int[] x) {
+        for (int i = 0; i < size; i++) {
+            int bit = i * 30;
+            int word = bit >>> 6;
+            int shift = bit & 63;
+            long w = word < a.length ? a[word] >>> shift : 0;
+            if (shift > 34 && word + 1 < a.length) {
+                w |= a[word + 1] << (64 - shift);
+            }
+            x[i] = (int) w & M30;
+        }
+    }
+
+    // non negative 30 bits limbs to 64 bits limbs
+    private void toLimbs(int[] x, long[] a) {
+        Arrays.fill(a, 0);
+        for (int i = 0; i < size; i++) {
+            int bit = i * 30;
+            int word = bit >>> 6;
+            int shift = bit & 63;
+            long w = x[i] & 0xFFFFFFFFL;
+            if (word < a.length) {
+                a[word] |= w << shift;
+            }
+            if (shift > 34 && word + 1 < a.length) {
+                a[word + 1] |= w >>> (64 - shift);
+            }
+        }
+    }
+}
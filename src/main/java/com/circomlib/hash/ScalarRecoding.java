@@ -0,0 +1,85 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+
+/**
+ * Scalar recodings for the BabyJub multiplications, computed on little endian 64 bits limbs.
+ */
+final class ScalarRecoding {
+
+    private ScalarRecoding() {
+    }
+
+    /**
+     * Non negative k as limbs, with a spare top limb for the recoding carries.
+     */
+    static long[] limbs(BigInteger k) {
+        return Montgomery.toLimbs(k, (k.bitLength() + 64) / 64 + 1);
+    }
+
+    /**
+     * w bits of k starting at bit offset, zero past the end of the limbs.
+     */
+    static int bits(long[] k, int offset, int w) {
+        int word = offset >>> 6;
+        int shift = offset & 63;
+        if (word >= k.length) {
+            return 0;
+        }
+        long v = k[word] >>> shift;
+        if (shift + w > 64 && word + 1 < k.length) {
+            v |= k[word + 1] << (64 - shift);
+        }
+        return (int) (v & ((1L << w) - 1));
+    }
+
+    /**
+     * Signed windows of width w for scalars of the given bit length : w * n >= bits + 2, the top
+     * digit takes the carry of the window below and must stay under 2^(w-1).
+     */
+    static int signedWindowCount(int bits, int w) {
+        return (bits + w + 1) / w;
+    }
+
+    /**
+     * Signed fixed windows : k = sum d[i] * 2^(w*i) with d[i] in [-2^(w-1), 2^(w-1)).
+     * nDigits must be at least {@link #signedWindowCount(int, int)} of the bit length of k, fewer
+     * digits lose the last carry.
+     */
+    static int[] signedWindows(long[] k, int w, int nDigits) {
+        int[] digits = new int[nDigits];
+        int half = 1 << (w - 1);
+        int carry = 0;
+        for (int i = 0; i < nDigits; i++) {
+            int d = bits(k, i * w, w) + carry;
+            carry = d >= half ? 1 : 0;
+            digits[i] = d - (carry << w);
+        }
+        return digits;
+    }
+
+    /**
+     * Width w NAF of a non negative k of the given bit length : digit i is zero or odd in
+     * (-2^(w-1), 2^(w-1)), and any w consecutive digits hold at most one non zero.
+     * Windows are read straight from the limbs with a carry instead of subtracting from k.
+     */
+    static int[] wnaf(long[] k, int bitLength, int w) {
+        int len = bitLength + 1;
+        int[] digits = new int[len];
+        int carry = 0;
+        int bit = 0;
+        while (bit < len) {
+            if (bits(k, bit, 1) == carry) {
+                bit++;
+                continue;
+            }
+            int now = Math.min(w, len - bit);
+            int word = bits(k, bit, now) + carry;
+            carry = (word >> (w - 1)) & 1;
+            word -= carry << w;
+            digits[bit] = word;
+            bit += now;
+        }
+        return digits;
+    }
+}
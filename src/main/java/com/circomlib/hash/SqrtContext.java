@@ -0,0 +1,246 @@
+package com.circomlib.hash;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Square roots modulo an odd prime with everything that only depends on the prime computed once :
+ * 2-adic decomposition p - 1 = q * 2^s, a non-residue z, the root of unity g = z^q and tables of its powers.
+ *
+ * A square root of a is x = a^((q+1)/2) * g^(-k/2) where t = a^q = g^k. k is found w bits at a time
+ * (Sarkar's table-based Tonelli-Shanks) : each digit costs a few table multiplications and a lookup in
+ * the 2^w-th roots of unity instead of the per-bit squaring loop of the classic algorithm.
+ *
+ * Non squares are rejected up front with the binary Jacobi symbol, before any exponentiation.
+ *
+ * Contexts are immutable and can be shared between threads, use {@link #of(BigInteger)}.
+ */
+public final class SqrtContext {
+
+    private static final ConcurrentHashMap<BigInteger, SqrtContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    private static final int MAX_WINDOW = 7;
+
+    public final BigInteger p;
+
+    // p - 1 = q * 2^s with q odd
+    public final int s;
+    public final BigInteger q;
+
+    // smallest quadratic non-residue
+    public final BigInteger z;
+
+    private final Montgomery engine;
+
+    // (q - 1) / 2
+    private final long[] qm1d2;
+
+    // (p - 1) / 2, to return the smallest root
+    private final long[] half;
+
+    // window width and the lowest bit of each digit of k
+    private final int w;
+    private final int[] offsets;
+
+    // powers g^(-d * 2^m) indexed by m then by digit d, Montgomery form
+    private final long[][][] negPowers;
+
+    // 2^w-th roots of unity h^j, h = g^(2^(s-w)), sorted on their first limb with the matching j
+    private final long[] rootKeys;
+    private final int[] rootLogs;
+
+    private SqrtContext(BigInteger p) {
+        if (!p.testBit(0) || p.compareTo(BigInteger.valueOf(3)) < 0) {
+            throw new IllegalArgumentException("p must be an odd prime");
+        }
+        this.p = p;
+        this.engine = Montgomery.of(p);
+
+        BigInteger pm1 = p.subtract(BigInteger.ONE);
+        this.s = pm1.getLowestSetBit();
+        this.q = pm1.shiftRight(s);
+        this.qm1d2 = Montgomery.toLimbs(q.shiftRight(1), engine.limbs);
+        this.half = Montgomery.toLimbs(pm1.shiftRight(1), engine.limbs);
+
+        long[] mod = Montgomery.toLimbs(p, engine.limbs);
+        long zz = 2;
+        while (Montgomery.jacobi(Montgomery.toLimbs(BigInteger.valueOf(zz), engine.limbs), mod) != -1) {
+            zz++;
+        }
+        this.z = BigInteger.valueOf(zz);
+
+        this.w = Math.min(s, MAX_WINDOW);
+        int nDigits = (s + w - 1) / w;
+        this.offsets = new int[nDigits];
+        for (int i = 0; i < nDigits; i++) {
+            offsets[i] = i * w;
+        }
+
+        // g^-1 squared m times gives g^(-2^m)
+        long[][] gInvPow2 = new long[s][];
+        long[] g = engine.toLimbs(z.modPow(q, p));
+        engine.toMontgomery(g, g);
+        long[] gi = engine.toLimbs(z.modPow(q, p).modInverse(p));
+        engine.toMontgomery(gi, gi);
+        for (int m = 0; m < s; m++) {
+            gInvPow2[m] = gi.clone();
+            engine.square(gi, gi);
+        }
+
+        this.negPowers = new long[s][][];
+        for (int i = 0; i < nDigits; i++) {
+            int e = exponentShift(i);
+            for (int j = 0; j < i; j++) {
+                buildTable(offsets[j] + e, gInvPow2);
+            }
+            buildTable(Math.max(offsets[i] - 1, 0), gInvPow2);
+        }
+
+        // h^j for j < 2^w
+        long[] h = g.clone();
+        for (int m = 0; m < s - w; m++) {
+            engine.square(h, h);
+        }
+        int size = 1 << w;
+        long[][] roots = new long[size][];
+        roots[0] = engine.newElement();
+        engine.setOne(roots[0]);
+        for (int j = 1; j < size; j++) {
+            roots[j] = engine.newElement();
+            engine.mul(roots[j - 1], h, roots[j]);
+        }
+        Integer[] order = new Integer[size];
+        for (int j = 0; j < size; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(roots[a][0], roots[b][0]));
+        this.rootKeys = new long[size];
+        this.rootLogs = new int[size];
+        for (int j = 0; j < size; j++) {
+            rootKeys[j] = roots[order[j]][0];
+            rootLogs[j] = order[j];
+            if (j > 0 && rootKeys[j] == rootKeys[j - 1]) {
+                throw new IllegalStateException("Roots of unity are not distinguished by their first limb");
+            }
+        }
+    }
+
+    /**
+     * Shared context for the prime p.
+     */
+    public static SqrtContext of(BigInteger p) {
+        return CONTEXTS.computeIfAbsent(p, SqrtContext::new);
+    }
+
+    // digit i is read from t^(2^e)
+    private int exponentShift(int i) {
+        return Math.max(s - offsets[i] - w, 0);
+    }
+
+    // width of digit i, the last one may be shorter
+    private int width(int i) {
+        return Math.min(w, s - offsets[i]);
+    }
+
+    private void buildTable(int m, long[][] gInvPow2) {
+        if (negPowers[m] != null) {
+            return;
+        }
+        long[][] table = new long[1 << w][];
+        table[0] = engine.newElement();
+        engine.setOne(table[0]);
+        for (int d = 1; d < table.length; d++) {
+            table[d] = engine.newElement();
+            engine.mul(table[d - 1], gInvPow2[m], table[d]);
+        }
+        negPowers[m] = table;
+    }
+
+    /**
+     * r = smallest square root of a, both in Montgomery form. Returns false, leaving r untouched,
+     * when a is not a square.
+     */
+    public boolean sqrt(long[] a, long[] r) {
+        long[] zero = engine.newElement();
+        int ls = engine.legendre(a);
+        if (ls == 0) {
+            System.arraycopy(zero, 0, r, 0, engine.limbs);
+            return true;
+        }
+        if (ls < 0) {
+            return false;
+        }
+
+        // u = a^((q-1)/2), x = a^((q+1)/2), t = a^q
+        long[] u = engine.newElement();
+        engine.exp(a, qm1d2, u);
+        long[] x = engine.newElement();
+        engine.mul(u, a, x);
+        long[] t = engine.newElement();
+        engine.mul(u, x, t);
+
+        // t^(2^m) for the exponent shifts used by the digits
+        long[][] tPow = new long[exponentShift(0) + 1][];
+        long[] acc = t.clone();
+        for (int m = 0; m < tPow.length; m++) {
+            tPow[m] = acc.clone();
+            engine.square(acc, acc);
+        }
+
+        int nDigits = offsets.length;
+        int[] digits = new int[nDigits];
+        long[] y = engine.newElement();
+        for (int i = 0; i < nDigits; i++) {
+            int e = exponentShift(i);
+            System.arraycopy(tPow[e], 0, y, 0, engine.limbs);
+            for (int j = 0; j < i; j++) {
+                engine.mul(y, negPowers[offsets[j] + e][digits[j]], y);
+            }
+            int log = log(y);
+            if (log < 0) {
+                return false;
+            }
+            digits[i] = log >> (w - width(i));
+        }
+
+        // x * g^(-k/2)
+        engine.mul(x, negPowers[0][digits[0] >> 1], x);
+        for (int i = 1; i < nDigits; i++) {
+            engine.mul(x, negPowers[offsets[i] - 1][digits[i]], x);
+        }
+
+        long[] c = engine.newElement();
+        engine.fromMontgomery(x, c);
+        if (greater(c, half)) {
+            engine.sub(zero, x, x);
+        }
+        System.arraycopy(x, 0, r, 0, engine.limbs);
+        return true;
+    }
+
+    public BigInteger sqrt(BigInteger a) {
+        long[] x = engine.toLimbs(a);
+        engine.toMontgomery(x, x);
+        if (!sqrt(x, x)) {
+            return null;
+        }
+        engine.fromMontgomery(x, x);
+        return engine.toBigInteger(x);
+    }
+
+    // j such that h^j = y, y is always a 2^w-th root of unity when p is prime
+    private int log(long[] y) {
+        int idx = Arrays.binarySearch(rootKeys, y[0]);
+        return idx < 0 ? -1 : rootLogs[idx];
+    }
+
+    private static boolean greater(long[] a, long[] b) {
+        for (int i = a.length - 1; i >= 0; i--) {
+            if (a[i] != b[i]) {
+                return Long.compareUnsigned(a[i], b[i]) > 0;
+            }
+        }
+        return false;
+    }
+}
@@ -3,15 +3,10 @@ package com.circomlib.hash;
 import java.math.BigInteger;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiFunction;
-import java.util.function.Function;
 
 public class TonelliShanks {
     private static final BigInteger ZERO = BigInteger.ZERO;
-    private static final BigInteger ONE = BigInteger.ONE;
     private static final BigInteger TEN = BigInteger.TEN;
-    private static final BigInteger TWO = BigInteger.valueOf(2);
-    private static final BigInteger FOUR = BigInteger.valueOf(4);
 
     public static class Solution {
         public BigInteger root1;
@@ -29,54 +24,19 @@ public class TonelliShanks {
         return ts(BigInteger.valueOf(n), BigInteger.valueOf(p));
     }
 
+    /**
+     * Square roots of n modulo the odd prime p, the per prime setup is cached in a {@link SqrtContext}.
+     */
     public static Solution ts(BigInteger n, BigInteger p) {
-        BiFunction<BigInteger, BigInteger, BigInteger> powModP = (BigInteger a, BigInteger e) -> a.modPow(e, p);
-        Function<BigInteger, BigInteger> ls = (BigInteger a) -> powModP.apply(a, p.subtract(ONE).divide(TWO));
-
-        if (!ls.apply(n).equals(ONE)) {
+        BigInteger a = n.mod(p);
+        if (a.signum() == 0) {
             return new Solution(ZERO, ZERO, false);
         }
-
-        BigInteger q = p.subtract(ONE);
-        BigInteger ss = ZERO;
-        while (q.and(ONE).equals(ZERO)) {
-            ss = ss.add(ONE);
-            q = q.shiftRight(1);
-        }
-
-        if (ss.equals(ONE)) {
-            BigInteger r1 = powModP.apply(n, p.add(ONE).divide(FOUR));
-            return new Solution(r1, p.subtract(r1), true);
-        }
-
-        BigInteger z = TWO;
-        while (!ls.apply(z).equals(p.subtract(ONE))) z = z.add(ONE);
-        BigInteger c = powModP.apply(z, q);
-        BigInteger r = powModP.apply(n, q.add(ONE).divide(TWO));
-        BigInteger t = powModP.apply(n, q);
-        BigInteger m = ss;
-
-        while (true) {
-            if (t.equals(ONE)) {
-                return new Solution(r, p.subtract(r), true);
-            }
-            BigInteger i = ZERO;
-            BigInteger zz = t;
-            while (!zz.equals(BigInteger.ONE) && i.compareTo(m.subtract(ONE)) < 0) {
-                zz = zz.multiply(zz).mod(p);
-                i = i.add(ONE);
-            }
-            BigInteger b = c;
-            BigInteger e = m.subtract(i).subtract(ONE);
-            while (e.compareTo(ZERO) > 0) {
-                b = b.multiply(b).mod(p);
-                e = e.subtract(ONE);
-            }
-            r = r.multiply(b).mod(p);
-            c = b.multiply(b).mod(p);
-            t = t.multiply(c).mod(p);
-            m = i;
+        BigInteger r = SqrtContext.of(p).sqrt(a);
+        if (r == null) {
+            return new Solution(ZERO, ZERO, false);
         }
+        return new Solution(r, p.subtract(r), true);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,19 @@
+package com.circomlib.provider.digest;
+
+import com.circomlib.crypto.digests.Blake512Digest;
+import org.bouncycastle.jcajce.provider.digest.BCMessageDigest;
+
+public class Blake512 extends BCMessageDigest implements Cloneable {
+
+    public Blake512() {
+        super(new Blake512Digest());
+    }
+
+    public Object clone()
+            throws CloneNotSupportedException {
+        Blake512 d = (Blake512) super.clone();
+        d.digest = new Blake512Digest((Blake512Digest) digest);
+
+        return d;
+    }
+}
@@ -0,0 +1,90 @@
+package com.circomlib.crypto.digests;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Generator of the unrolled rounds of {@link BlakeDigest}, from the sigma permutations and the
+ * u256 constants of the specification. main prints firstRounds and lastRounds, to be pasted in
+ * place of the ones in BlakeDigest, and the test checks the source still matches them.
+ */
+public class BlakeRoundsTest {
+
+    private static final String SOURCE = "src/main/java/com/circomlib/crypto/digests/BlakeDigest.java";
+
+    private static final int[] U256 = new int[]{
+            0x243f6a88, 0x85a308d3, 0x13198a2e, 0x03707344,
+            0xa4093822, 0x299f31d0, 0x082efa98, 0xec4e6c89,
+            0x452821e6, 0x38d01377, 0xbe5466cf, 0x34e90c6c,
+            0xc0ac29b7, 0xc97c50dd, 0x3f84d5b5, 0xb5470917
+    };
+
+    // state words (a, b, c, d) of the 4 column steps then the 4 diagonal steps
+    private static final int[][] STEPS = new int[][]{
+            {0, 4, 8, 12}, {1, 5, 9, 13}, {2, 6, 10, 14}, {3, 7, 11, 15},
+            {0, 5, 10, 15}, {1, 6, 11, 12}, {2, 7, 8, 13}, {3, 4, 9, 14}
+    };
+
+    private static final String I = "        ";
+
+    public static void main(String[] args) {
+        System.out.print(generate());
+    }
+
+    static String generate() {
+        return rounds("firstRounds", 0, 6) + "\n" + rounds("lastRounds", 7, 13);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String rounds(String name, int first, int last) {
+        StringBuilder out = new StringBuilder();
+        out.append("    // rounds ").append(first).append(" to ").append(last)
+                .append(", the message words and constants of each step written out\n");
+        out.append("    private static void ").append(name).append("(int[] v, int[] m) {\n");
+        for (int i = 0; i < 16; i++) {
+            out.append(I).append("int v").append(i).append(" = v[").append(i).append("];\n");
+        }
+        for (int i = 0; i < 16; i++) {
+            out.append(I).append("int m").append(i).append(" = m[").append(i).append("];\n");
+        }
+        for (int r = first; r <= last; r++) {
+            byte[] s = BlakeDigest.sigma[r % 10];
+            out.append("\n").append(I).append("// round ").append(r).append("\n");
+            for (int j = 0; j < STEPS.length; j++) {
+                int a = STEPS[j][0], b = STEPS[j][1], c = STEPS[j][2], d = STEPS[j][3];
+                int e = 2 * j;
+                if (j == 0) {
+                    out.append(I).append("/* column step */\n");
+                } else if (j == 4) {
+                    out.append(I).append("/* diagonal step */\n");
+                }
+                out.append(I).append(String.format("v%d += v%d + (m%d ^ 0x%08x);\n", a, b, s[e], U256[s[e + 1]]));
+                out.append(I).append(String.format("v%d = Integer.rotateRight(v%d ^ v%d, 16);\n", d, d, a));
+                out.append(I).append(String.format("v%d += v%d;\n", c, d));
+                out.append(I).append(String.format("v%d = Integer.rotateRight(v%d ^ v%d, 12);\n", b, b, c));
+                out.append(I).append(String.format("v%d += v%d + (m%d ^ 0x%08x);\n", a, b, s[e + 1], U256[s[e]]));
+                out.append(I).append(String.format("v%d = Integer.rotateRight(v%d ^ v%d, 8);\n", d, d, a));
+                out.append(I).append(String.format("v%d += v%d;\n", c, d));
+                out.append(I).append(String.format("v%d = Integer.rotateRight(v%d ^ v%d, 7);\n", b, b, c));
+            }
+        }
+        out.append("\n");
+        for (int i = 0; i < 16; i++) {
+            out.append(I).append("v[").append(i).append("] = v").append(i).append(";\n");
+        }
+        out.append("    }\n");
+        return out.toString();
+    }
+
+    @Test
+    public void sourceMatchesGenerator() throws IOException {
+        String source = new String(Files.readAllBytes(Paths.get(SOURCE)), StandardCharsets.UTF_8);
+        assertTrue("BlakeDigest rounds differ from BlakeRoundsTest.generate()", source.contains(generate()));
+    }
+}
@@ -3,7 +3,10 @@ package com.circomlib.hash;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -197,4 +200,172 @@ public class BabyJubTest {
         assertEquals("4338620300185947561074059802482547481416142213883829469920100239455078257889", ByteArrayOperator.toString(res.r,10));
     }
 
+    @Test
+    public void packPointSmallY() {
+        BabyJub babyJub = new BabyJub();
+        byte[] res = babyJub.packPoint(new PairByteArray(ByteArrayOperator.e(0), ByteArrayOperator.e(1)));
+        assertEquals("0100000000000000000000000000000000000000000000000000000000000000", ByteArrayOperator.toHexString(res));
+    }
+
+    @Test
+    public void unpackPointZeroX() {
+        // x^2 = 0 is rejected, as in circomlibjs : (0, 1) and (0, -1) do not unpack
+        BabyJub babyJub = new BabyJub();
+        byte[] one = babyJub.packPoint(new PairByteArray(ByteArrayOperator.e(0), ByteArrayOperator.e(1)));
+        byte[] minusOne = babyJub.packPoint(new PairByteArray(ByteArrayOperator.e(0), ByteArrayOperator.e(-1)));
+        assertTrue(babyJub.unpackPoint(one) == null);
+        assertTrue(babyJub.unpackPoint(minusOne) == null);
+        PairByteArray[] batch = babyJub.unpackPoints(new byte[][]{one, minusOne});
+        assertTrue(batch[0] == null && batch[1] == null);
+    }
+
+    @Test
+    public void unpackPointNonCanonical() {
+        BabyJub babyJub = new BabyJub();
+        byte[] packed = babyJub.packPoint(new PairByteArray(
+                ByteArrayOperator.e(new BigInteger("17777552123799933955779906779655732241715742912184938656739573121738514868268", 10)),
+                ByteArrayOperator.e(new BigInteger("2626589144620713026669568689430873010625803728049924121243784502389097019475", 10))));
+        assertTrue(babyJub.unpackPoint(packed) != null);
+
+        // y + p still fits the 255 bits of the encoding
+        byte[] y = new BigInteger("2626589144620713026669568689430873010625803728049924121243784502389097019475", 10).add(Fr.MODULUS).toByteArray();
+        byte[] aliased = packed.clone();
+        for (int i = 0; i < 32; i++) {
+            aliased[i] = i < y.length ? y[y.length - 1 - i] : 0;
+        }
+        aliased[31] |= (byte) (packed[31] & 0x80);
+        assertTrue(babyJub.unpackPoint(aliased) == null);
+        assertTrue(babyJub.unpackPoints(new byte[][]{aliased})[0] == null);
+    }
+
+    @Test
+    public void addPoints() {
+        BabyJub babyJub = new BabyJub();
+        PairByteArray p1 = new PairByteArray(
+                ByteArrayOperator.e(new BigInteger("17777552123799933955779906779655732241715742912184938656739573121738514868268", 10)),
+                ByteArrayOperator.e(new BigInteger("2626589144620713026669568689430873010625803728049924121243784502389097019475", 10)));
+        PairByteArray p2 = new PairByteArray(
+                ByteArrayOperator.e(new BigInteger("16540640123574156134436876038791482806971768689494387082833631921987005038935", 10)),
+                ByteArrayOperator.e(new BigInteger("20819045374670962167435360035096875258406992893633759881276124905556507972311", 10)));
+        PairByteArray zero = new PairByteArray(ByteArrayOperator.e(0), ByteArrayOperator.e(1));
+
+        PairByteArray[] res = babyJub.addPoints(new PairByteArray[]{p1, p1, zero}, new PairByteArray[]{p2, p1, p2});
+        assertEquals("7916061937171219682591368294088513039687205273691143098332585753343424131937", new BigInteger(res[0].l).toString(10));
+        assertEquals("14035240266687799601661095864649209771790948434046947201833777492504781204499", new BigInteger(res[0].r).toString(10));
+        assertEquals("6890855772600357754907169075114257697580319025794532037257385534741338397365", new BigInteger(res[1].l).toString(10));
+        assertEquals("4338620300185947561074059802482547481416142213883829469920100239455078257889", new BigInteger(res[1].r).toString(10));
+        assertEquals(new BigInteger(p2.l), new BigInteger(res[2].l));
+        assertEquals(new BigInteger(p2.r), new BigInteger(res[2].r));
+    }
+
+    @Test
+    public void unpackPoints() {
+        BabyJub babyJub = new BabyJub();
+        byte[] invalid = new byte[32];
+        invalid[0] = 2;
+        byte[][] packed = new byte[][]{
+                new BigInteger("53b81ed5bffe9545b54016234682e7b2f699bd42a5e9eae27ff4051bc698ce85", 16).toByteArray(),
+                invalid,
+                new BigInteger("e114eb17eddf794f063a68fecac515e3620e131976108555735c8b0773929709", 16).toByteArray()
+        };
+        // drop the BigInteger sign byte
+        for (int i = 0; i < packed.length; i++) {
+            if (packed[i].length == 33) {
+                packed[i] = Arrays.copyOfRange(packed[i], 1, 33);
+            }
+        }
+        PairByteArray[] res = babyJub.unpackPoints(packed);
+        assertEquals(null, babyJub.unpackPoint(invalid));
+        assertEquals(null, res[1]);
+        assertEquals("17777552123799933955779906779655732241715742912184938656739573121738514868268", ByteArrayOperator.toString(res[0].l, 10));
+        assertEquals("2626589144620713026669568689430873010625803728049924121243784502389097019475", ByteArrayOperator.toString(res[0].r, 10));
+        assertEquals("6890855772600357754907169075114257697580319025794532037257385534741338397365", ByteArrayOperator.toString(res[2].l, 10));
+        assertEquals("4338620300185947561074059802482547481416142213883829469920100239455078257889", ByteArrayOperator.toString(res[2].r, 10));
+    }
+
+    @Test
+    public void inSubgroupBatch() {
+        BabyJub babyJub = new BabyJub();
+        Random rnd = new Random(1);
+        PairByteArray order2 = new PairByteArray(new byte[]{0}, Fr.fromBigInteger(Fr.MODULUS.subtract(BigInteger.ONE)).toByteArray());
+        PairByteArray[] points = new PairByteArray[150];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = babyJub.mulBase8(new BigInteger(250, rnd).toByteArray());
+        }
+        boolean[] expected = new boolean[points.length];
+        Arrays.fill(expected, true);
+        assertArrayEquals(expected, babyJub.inSubgroup(points));
+
+        points[17] = babyJub.addPoint(points[17], order2);
+        points[90] = new PairByteArray(points[90].l, points[91].r);
+        expected[17] = false;
+        expected[90] = false;
+        assertArrayEquals(expected, babyJub.inSubgroup(points));
+
+        PairByteArray[] few = Arrays.copyOfRange(points, 10, 20);
+        assertArrayEquals(Arrays.copyOfRange(expected, 10, 20), babyJub.inSubgroup(few));
+    }
+
+    @Test
+    public void inSubgroupBatchPairedTorsion() {
+        // two torsions of order 2 cancel in any combination with r_i + r_j even
+        BabyJub babyJub = new BabyJub();
+        Random rnd = new Random(2);
+        PairByteArray order2 = new PairByteArray(new byte[]{0}, Fr.fromBigInteger(Fr.MODULUS.subtract(BigInteger.ONE)).toByteArray());
+        PairByteArray[] points = new PairByteArray[BabyJub.SUBGROUP_BATCH_MIN];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = babyJub.mulBase8(new BigInteger(250, rnd).toByteArray());
+        }
+        boolean[] expected = new boolean[points.length];
+        Arrays.fill(expected, true);
+        for (int i : new int[]{3, 40}) {
+            points[i] = babyJub.addPoint(points[i], order2);
+            expected[i] = false;
+        }
+        for (int k = 0; k < 8; k++) {
+            assertArrayEquals(expected, babyJub.inSubgroup(points));
+        }
+    }
+
+    @Test
+    public void unpackContiguous() {
+        BabyJub babyJub = new BabyJub();
+        Random rnd = new Random(2);
+        int n = 600;
+        byte[] buff = new byte[3 + 32 * n];
+        PairByteArray[] points = new PairByteArray[n];
+        boolean[] expected = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = babyJub.mulBase8(new BigInteger(250, rnd).toByteArray());
+            byte[] packed = babyJub.packPoint(points[i]);
+            expected[i] = true;
+            if (i % 97 == 5) {
+                // y above p
+                Arrays.fill(packed, (byte) 0xFF);
+                packed[31] = 0x7F;
+                expected[i] = false;
+            }
+            System.arraycopy(packed, 0, buff, 3 + 32 * i, 32);
+        }
+        PairByteArray[] out = new PairByteArray[n];
+        boolean[] valid = babyJub.unpackPoints(buff, 3, n, out);
+        for (int i = 0; i < n; i++) {
+            PairByteArray single = babyJub.unpackPoint(Arrays.copyOfRange(buff, 3 + 32 * i, 35 + 32 * i));
+            assertEquals(single != null, valid[i]);
+            if (expected[i]) {
+                assertTrue(valid[i]);
+                assertEquals(new BigInteger(points[i].l), new BigInteger(out[i].l));
+                assertEquals(new BigInteger(points[i].r), new BigInteger(out[i].r));
+            } else {
+                assertEquals(null, out[i]);
+            }
+        }
+
+        // too short, the missing points are just invalid
+        boolean[] partial = babyJub.unpackPoints(Arrays.copyOf(buff, 3 + 32 * 10 + 7), 3, 12, null);
+        assertTrue(partial[9]);
+        assertTrue(!partial[10] && !partial[11]);
+        assertEquals(0, babyJub.unpackPoints(null, 0, 0, null).length);
+        assertTrue(!babyJub.unpackPoints(buff, -1, 1, null)[0]);
+    }
 }
@@ -0,0 +1,115 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EddsaTest {
+
+    private static final byte[] PRV = hex("0001020304050607080900010203040506070809000102030405060708090001");
+
+    @Test
+    public void prv2pub() {
+        Eddsa eddsa = new Eddsa();
+        PairByteArray a = eddsa.prv2pub(PRV);
+        assertEquals("13277427435165878497778222415993513565335242147425444199013288855685581939618", ByteArrayOperator.toString(a.l, 10));
+        assertEquals("13622229784656158136036771217484571176836296686641868549125388198837476602820", ByteArrayOperator.toString(a.r, 10));
+    }
+
+    @Test
+    public void signPedersen() {
+        Eddsa eddsa = new Eddsa();
+        byte[] msg = new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        Eddsa.Signature sig = eddsa.signPedersen(PRV, msg);
+        assertEquals("21253904451576600568378459528205653033385900307028841334532552830614710476912", ByteArrayOperator.toString(sig.r8.l, 10));
+        assertEquals("20125634407542493427571099944365246191501563803226486072348038614369379124499", ByteArrayOperator.toString(sig.r8.r, 10));
+        assertEquals("2129243915978267980511515511350111723623685317644064470882297086073041379651", ByteArrayOperator.toString(sig.s, 10));
+
+        PairByteArray a = eddsa.prv2pub(PRV);
+        assertTrue(eddsa.verifyPedersen(msg, sig, a));
+        msg[0] = 1;
+        assertFalse(eddsa.verifyPedersen(msg, sig, a));
+    }
+
+    @Test
+    public void signMiMCSponge() {
+        Eddsa eddsa = new Eddsa();
+        byte[] msg = BigInteger.valueOf(1234).toByteArray();
+        Eddsa.Signature sig = eddsa.signMiMCSponge(PRV, msg);
+        assertEquals("11220723668893468001994760120794694848178115379170651044669708829805665054484", ByteArrayOperator.toString(sig.r8.l, 10));
+        assertEquals("2367470421002446880004241260470975644531657398480773647535134774673409612366", ByteArrayOperator.toString(sig.r8.r, 10));
+
+        PairByteArray a = eddsa.prv2pub(PRV);
+        assertTrue(eddsa.verifyMiMCSponge(msg, sig, a));
+        assertFalse(eddsa.verifyMiMCSponge(BigInteger.valueOf(1235).toByteArray(), sig, a));
+        Eddsa.Signature bad = new Eddsa.Signature(sig.r8, new BigInteger(sig.s).add(BabyJub.SUB_ORDER).toByteArray());
+        assertFalse(eddsa.verifyMiMCSponge(msg, bad, a));
+    }
+
+    @Test
+    public void packSignature() {
+        Eddsa eddsa = new Eddsa();
+        Eddsa.Signature sig = eddsa.signPedersen(PRV, new byte[]{1, 2, 3});
+        byte[] packed = eddsa.packSignature(sig);
+        assertEquals(64, packed.length);
+        Eddsa.Signature unpacked = eddsa.unpackSignature(packed);
+        assertArrayEquals(sig.r8.l, unpacked.r8.l);
+        assertArrayEquals(sig.r8.r, unpacked.r8.r);
+        assertArrayEquals(sig.s, unpacked.s);
+    }
+
+    @Test
+    public void verifyBatch() {
+        Eddsa eddsa = new Eddsa();
+        BabyJub babyJub = new BabyJub();
+        int n = 80;
+        byte[][] msgs = new byte[n][];
+        Eddsa.Signature[] sigs = new Eddsa.Signature[n];
+        PairByteArray[] as = new PairByteArray[n];
+        for (int i = 0; i < n; i++) {
+            byte[] prv = PRV.clone();
+            prv[0] = (byte) i;
+            msgs[i] = new byte[]{(byte) i, (byte) (3 * i)};
+            sigs[i] = eddsa.signPedersen(prv, msgs[i]);
+            as[i] = eddsa.prv2pub(prv);
+        }
+        boolean[] all = new boolean[n];
+        java.util.Arrays.fill(all, true);
+        assertArrayEquals(all, eddsa.verifyPedersen(msgs, sigs, as));
+
+        // wrong key, S out of range, and R8 moved by the point of order 2 : the latter only fails
+        // because of the subgroup check, S * Base8 - 8 * hm * A never has a low order component
+        as[3] = as[4];
+        sigs[10] = new Eddsa.Signature(sigs[10].r8, new BigInteger(sigs[10].s).add(BabyJub.SUB_ORDER).toByteArray());
+        PairByteArray t2 = new PairByteArray(new byte[]{0}, Fr.MODULUS.subtract(BigInteger.ONE).toByteArray());
+        sigs[20] = new Eddsa.Signature(babyJub.addPoint(sigs[20].r8, t2), sigs[20].s);
+        boolean[] result = eddsa.verifyPedersen(msgs, sigs, as);
+        for (int i = 0; i < n; i++) {
+            assertEquals(i != 3 && i != 10 && i != 20, result[i]);
+            assertEquals(result[i], eddsa.verifyPedersen(msgs[i], sigs[i], as[i]));
+        }
+    }
+
+    @Test
+    public void verifyBatchSmall() {
+        Eddsa eddsa = new Eddsa();
+        byte[][] msgs = new byte[][]{BigInteger.valueOf(1).toByteArray(), BigInteger.valueOf(2).toByteArray()};
+        Eddsa.Signature[] sigs = new Eddsa.Signature[]{eddsa.signMiMCSponge(PRV, msgs[0]), eddsa.signMiMCSponge(PRV, msgs[1])};
+        PairByteArray a = eddsa.prv2pub(PRV);
+        assertArrayEquals(new boolean[]{true, true}, eddsa.verifyMiMCSponge(msgs, sigs, new PairByteArray[]{a, a}));
+        assertArrayEquals(new boolean[]{false, false}, eddsa.verifyMiMCSponge(new byte[][]{msgs[1], msgs[0]}, sigs, new PairByteArray[]{a, a}));
+    }
+
+    private static byte[] hex(String s) {
+        byte[] b = new byte[s.length() / 2];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) Integer.parseInt(s.substring(2 * i, 2 * i + 2), 16);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,143 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExtendedPointTest {
+
+    private static final Fr BASE8_X = Fr.fromBigInteger(new BigInteger("5299619240641551281634865583518297030282874472190772894086521144482721001553"));
+    private static final Fr BASE8_Y = Fr.fromBigInteger(new BigInteger("16950150798460657717958625567821834550301663161624707787222815936182638968203"));
+
+    private final BabyJub babyJub = new BabyJub();
+
+    private static ExtendedPoint base8() {
+        return ExtendedPoint.fromAffine(BASE8_X, BASE8_Y);
+    }
+
+    // projective representative of the same point, Z != 1
+    private static ExtendedPoint scaled(ExtendedPoint p, long k) {
+        Fr s = new Fr(k);
+        ExtendedPoint q = new ExtendedPoint(p);
+        q.x.mul(s);
+        q.y.mul(s);
+        q.t.mul(s);
+        q.z.mul(s);
+        return q;
+    }
+
+    @Test
+    public void matchesAffine() {
+        Random rnd = new Random(1);
+        ExtendedPoint b = base8();
+        for (int i = 0; i < 20; i++) {
+            ExtendedPoint p = new ExtendedPoint().mul(b, new BigInteger(250, rnd));
+            ExtendedPoint q = new ExtendedPoint().mul(b, new BigInteger(250, rnd));
+            PairByteArray pp = p.toPair();
+            PairByteArray qp = q.toPair();
+
+            PairByteArray sum = babyJub.addPoint(pp, qp);
+            ExtendedPoint r = new ExtendedPoint().add(scaled(p, 7), scaled(q, 11));
+            assertEquals(ExtendedPoint.fromPair(sum), r);
+            assertEquals(ExtendedPoint.fromPair(sum), new ExtendedPoint().addMixed(scaled(p, 3), q.normalize()));
+
+            PairByteArray twice = babyJub.addPoint(pp, pp);
+            assertEquals(ExtendedPoint.fromPair(twice), new ExtendedPoint().dbl(scaled(p, 5)));
+            assertEquals(ExtendedPoint.fromPair(twice), new ExtendedPoint().add(p, p));
+
+            Fr x = new Fr();
+            Fr y = new Fr();
+            r.toAffine(x, y);
+            assertTrue(babyJub.inCurve(x, y));
+        }
+    }
+
+    @Test
+    public void identity() {
+        ExtendedPoint b = base8();
+        ExtendedPoint o = new ExtendedPoint();
+        assertTrue(o.isIdentity());
+        assertEquals(b, new ExtendedPoint().add(b, o));
+        assertEquals(b, new ExtendedPoint().addMixed(o, b));
+        assertTrue(new ExtendedPoint().dbl(o).isIdentity());
+        assertTrue(new ExtendedPoint().add(b, new ExtendedPoint().neg(b)).isIdentity());
+        assertTrue(new ExtendedPoint().mul(b, BabyJub.SUB_ORDER).isIdentity());
+        assertTrue(new ExtendedPoint().mul(b, BigInteger.ZERO).isIdentity());
+        assertEquals(new ExtendedPoint().neg(b), new ExtendedPoint().mul(b, BigInteger.ONE.negate()));
+    }
+
+    @Test
+    public void mulPointEscalar() {
+        PairByteArray p = new PairByteArray(
+                new BigInteger("17777552123799933955779906779655732241715742912184938656739573121738514868268").toByteArray(),
+                new BigInteger("2626589144620713026669568689430873010625803728049924121243784502389097019475").toByteArray());
+        byte[] e = new BigInteger("14035240266687799601661095864649209771790948434046947201833777492504781204499").toByteArray();
+        PairByteArray r = babyJub.mulPointEscalar(p, e);
+        assertEquals(new BigInteger("17070357974431721403481313912716834497662307308519659060910483826664480189605"), new BigInteger(r.l));
+        assertEquals(new BigInteger("4014745322800118607127020275658861516666525056516280575712425373174125159339"), new BigInteger(r.r));
+    }
+
+    @Test
+    public void subgroup() {
+        PairByteArray b8 = new PairByteArray(BASE8_X.toByteArray(), BASE8_Y.toByteArray());
+        assertTrue(babyJub.inSubgroup(b8));
+        // (0, -1) has order 2
+        PairByteArray low = new PairByteArray(new byte[]{0}, Fr.fromBigInteger(Fr.MODULUS.subtract(BigInteger.ONE)).toByteArray());
+        assertTrue(babyJub.inCurve(low));
+        assertFalse(babyJub.inSubgroup(low));
+        assertFalse(babyJub.inSubgroup(babyJub.addPoint(b8, low)));
+    }
+
+    // plain right to left double and add on affine points
+    private PairByteArray referenceMul(PairByteArray p, BigInteger k) {
+        PairByteArray r = new PairByteArray(new byte[]{0}, new byte[]{1});
+        for (int i = 0; i < k.bitLength(); i++) {
+            if (k.testBit(i)) {
+                r = babyJub.addPoint(r, p);
+            }
+            p = babyJub.addPoint(p, p);
+        }
+        return r;
+    }
+
+    @Test
+    public void wnafWidths() {
+        Random rnd = new Random(3);
+        PairByteArray b8 = new PairByteArray(BASE8_X.toByteArray(), BASE8_Y.toByteArray());
+        for (int i = 0; i < 8; i++) {
+            BigInteger k = new BigInteger(1 + rnd.nextInt(256), rnd);
+            ExtendedPoint expected = ExtendedPoint.fromPair(referenceMul(b8, k));
+            for (int w = 2; w <= 8; w++) {
+                assertEquals(expected, new ExtendedPoint().mul(scaled(base8(), 3), k, w));
+            }
+        }
+    }
+
+    @Test
+    public void wnafRecoding() {
+        Random rnd = new Random(4);
+        for (int w = 2; w <= 8; w++) {
+            for (int i = 0; i < 100; i++) {
+                BigInteger k = new BigInteger(1 + rnd.nextInt(300), rnd);
+                int[] digits = ScalarRecoding.wnaf(ScalarRecoding.limbs(k), k.bitLength(), w);
+                BigInteger sum = BigInteger.ZERO;
+                int last = -w;
+                for (int j = 0; j < digits.length; j++) {
+                    int d = digits[j];
+                    if (d != 0) {
+                        assertTrue((d & 1) == 1 && Math.abs(d) < (1 << (w - 1)));
+                        assertTrue(j - last >= w);
+                        last = j;
+                        sum = sum.add(BigInteger.valueOf(d).shiftLeft(j));
+                    }
+                }
+                assertEquals(k, sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FixedBaseTableTest {
+
+    private final BabyJub babyJub = new BabyJub();
+
+    @Test
+    public void matchesDoubleAndAdd() {
+        Random rnd = new Random(1);
+        ExtendedPoint base = ExtendedPoint.fromAffine(BabyJub.BASE8_X, BabyJub.BASE8_Y);
+        for (int w = 2; w <= 8; w++) {
+            FixedBaseTable table = new FixedBaseTable(base, w);
+            for (int i = 0; i < 10; i++) {
+                BigInteger k = new BigInteger(1 + rnd.nextInt(256), rnd);
+                assertEquals(new ExtendedPoint().mul(base, k), table.mul(k, new ExtendedPoint()));
+            }
+            BigInteger max = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+            assertEquals(new ExtendedPoint().mul(base, max), table.mul(max, new ExtendedPoint()));
+            assertEquals(new ExtendedPoint().mul(base, BigInteger.valueOf(-5)), table.mul(BigInteger.valueOf(-5), new ExtendedPoint()));
+            assertTrue(table.mul(BigInteger.ZERO, new ExtendedPoint()).isIdentity());
+        }
+    }
+
+    @Test
+    public void oversizedScalarOutsideSubgroup() {
+        // -Base8 + (0, -1) : a curve point with a component of order 2
+        ExtendedPoint base = ExtendedPoint.fromAffine(new Fr().neg(BabyJub.BASE8_X), new Fr().neg(BabyJub.BASE8_Y));
+        FixedBaseTable table = new FixedBaseTable(base, 4);
+        BigInteger k = BabyJub.SUB_ORDER.add(BigInteger.ONE.shiftLeft(300));
+        assertEquals(new ExtendedPoint().mul(base, k), table.mul(k, new ExtendedPoint()));
+        assertEquals(new ExtendedPoint().mul(base, k.negate()), table.mul(k.negate(), new ExtendedPoint()));
+    }
+
+    @Test
+    public void mulBase8() {
+        Random rnd = new Random(2);
+        PairByteArray b8 = babyJub.base8();
+        for (int i = 0; i < 20; i++) {
+            byte[] e = new BigInteger(251, rnd).toByteArray();
+            PairByteArray expected = babyJub.mulPointEscalar(b8, e);
+            PairByteArray r = babyJub.mulBase8(e);
+            assertEquals(new BigInteger(expected.l), new BigInteger(r.l));
+            assertEquals(new BigInteger(expected.r), new BigInteger(r.r));
+        }
+        byte[] e = BabyJub.SUB_ORDER.add(BigInteger.TEN).toByteArray();
+        assertEquals(ExtendedPoint.fromPair(babyJub.mulBase8(BigInteger.TEN.toByteArray())),
+                ExtendedPoint.fromPair(babyJub.fixedBase(b8, 3).mul(e)));
+    }
+}
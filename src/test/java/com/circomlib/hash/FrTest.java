@@ -0,0 +1,119 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrTest {
+
+    private static final BigInteger P = Fr.MODULUS;
+
+    private static BigInteger random(Random rnd) {
+        return new BigInteger(256, rnd).mod(P);
+    }
+
+    @Test
+    public void arithmeticMatchesBigInteger() {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            BigInteger a = random(rnd);
+            BigInteger b = random(rnd);
+            Fr fa = Fr.fromBigInteger(a);
+            Fr fb = Fr.fromBigInteger(b);
+            assertEquals(a.add(b).mod(P), new Fr().add(fa, fb).toBigInteger());
+            assertEquals(a.subtract(b).mod(P), new Fr().sub(fa, fb).toBigInteger());
+            assertEquals(a.multiply(b).mod(P), new Fr().mul(fa, fb).toBigInteger());
+            assertEquals(a.multiply(a).mod(P), new Fr().square(fa).toBigInteger());
+            assertEquals(a.negate().mod(P), new Fr().neg(fa).toBigInteger());
+            assertEquals(a.modInverse(P), new Fr().inverse(fa).toBigInteger());
+            assertEquals(a.multiply(b.modInverse(P)).mod(P), new Fr().div(fa, fb).toBigInteger());
+            assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(fa.compareTo(fb)));
+        }
+    }
+
+    @Test
+    public void inPlace() {
+        Fr x = new Fr(3);
+        Fr y = new Fr(5);
+        x.mul(x, y).add(x).square();
+        assertEquals(BigInteger.valueOf(900), x.toBigInteger());
+        x.inverse().mul(new Fr(900));
+        assertTrue(x.isOne());
+        assertTrue(new Fr().inverse(new Fr()).isZero());
+    }
+
+    @Test
+    public void pow() {
+        Random rnd = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            BigInteger a = random(rnd);
+            BigInteger e = new BigInteger(256, rnd);
+            assertEquals(a.modPow(e, P), new Fr().pow(Fr.fromBigInteger(a), e).toBigInteger());
+        }
+    }
+
+    @Test
+    public void byteArrayLayout() {
+        Random rnd = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            BigInteger a = new BigInteger(rnd.nextInt(300), rnd);
+            if (rnd.nextBoolean()) {
+                a = a.negate();
+            }
+            Fr f = Fr.fromBytes(a.toByteArray());
+            assertEquals(a.mod(P), f.toBigInteger());
+            assertArrayEquals(a.mod(P).toByteArray(), f.toByteArray());
+        }
+        assertArrayEquals(new byte[]{0}, new Fr().toByteArray());
+        assertEquals(BigInteger.ONE, Fr.fromBytes(new byte[]{0, 0, 0, 1}).toBigInteger());
+    }
+
+    @Test
+    public void littleEndian() {
+        Random rnd = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            byte[] le = new byte[32];
+            rnd.nextBytes(le);
+            byte[] be = new byte[33];
+            for (int j = 0; j < 32; j++) {
+                be[32 - j] = le[j];
+            }
+            Fr f = new Fr().setBytesLE(le, 0);
+            assertEquals(new BigInteger(be).mod(P), f.toBigInteger());
+
+            byte[] out = new byte[32];
+            f.toBytesLE(out, 0);
+            assertEquals(f, new Fr().setBytesLE(out, 0));
+        }
+        byte[] out = new byte[34];
+        new Fr(0x0102).toBytesLE(out, 1);
+        assertEquals("[0, 2, 1, 0]", Arrays.toString(Arrays.copyOf(out, 4)));
+    }
+
+    @Test
+    public void batchInverse() {
+        Random rnd = new Random(5);
+        Fr[] values = new Fr[64];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 7 == 3) ? new Fr() : Fr.fromBigInteger(random(rnd));
+        }
+        Fr[] out = new Fr[values.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = new Fr();
+        }
+        Fr.batchInverse(values, out);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(new Fr().inverse(values[i]), out[i]);
+        }
+
+        Fr.batchInverse(out);
+        assertArrayEquals(values, out);
+        Fr.batchInverse(new Fr[0]);
+    }
+}
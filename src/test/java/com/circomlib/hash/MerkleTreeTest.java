@@ -0,0 +1,77 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MerkleTreeTest {
+
+    @Test
+    public void rootOfTwoLeaves() {
+        MerkleTree.Hasher hasher = MerkleTree.mimcSponge();
+        MerkleTree tree = new MerkleTree(1, hasher, new byte[]{0});
+        tree.insert(new byte[]{1});
+        tree.insert(new byte[]{2});
+        // multiHash(1, 2) of MimcSpongeTest
+        assertEquals("2bcea035a1251603f1ceaf73cd4ae89427c47075bb8e3a944039ff1e3d6d2a6f", ByteArrayOperator.toString(tree.root(), 16));
+    }
+
+    @Test
+    public void emptyTree() {
+        MerkleTree.Hasher hasher = MerkleTree.mimcSponge();
+        MerkleTree tree = new MerkleTree(3, hasher, new byte[]{0});
+        byte[] z1 = hasher.hash(new byte[]{0}, new byte[]{0});
+        byte[] z2 = hasher.hash(z1, z1);
+        assertArrayEquals(hasher.hash(z2, z2), tree.root());
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void insertMatchesBuild() {
+        MerkleTree.Hasher hasher = MerkleTree.mimcSponge();
+        byte[][] leaves = new byte[11][];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = BigInteger.valueOf(100 + i).toByteArray();
+        }
+        MerkleTree incremental = new MerkleTree(5, hasher, new byte[]{0});
+        for (int i = 0; i < leaves.length; i++) {
+            assertEquals(i, incremental.insert(leaves[i]));
+            byte[][] prefix = new byte[i + 1][];
+            System.arraycopy(leaves, 0, prefix, 0, i + 1);
+            assertArrayEquals(new MerkleTree(5, hasher, new byte[]{0}, prefix).root(), incremental.root());
+        }
+    }
+
+    @Test
+    public void paths() {
+        MerkleTree.Hasher hasher = MerkleTree.pedersen();
+        byte[][] leaves = new byte[6][];
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new byte[32];
+            leaves[i][0] = (byte) (i + 1);
+        }
+        MerkleTree tree = new MerkleTree(4, hasher, new byte[32], leaves);
+        byte[] last = new byte[32];
+        last[31] = 7;
+        tree.insert(last);
+        for (int i = 0; i < tree.size(); i++) {
+            byte[][] path = tree.path(i);
+            assertEquals(4, path.length);
+            assertTrue(MerkleTree.verify(hasher, tree.root(), tree.leaf(i), i, path));
+            assertFalse(MerkleTree.verify(hasher, tree.root(), tree.leaf(i), i ^ 1, path));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void full() {
+        MerkleTree tree = new MerkleTree(1, MerkleTree.mimcSponge(), new byte[]{0});
+        tree.insert(new byte[]{1});
+        tree.insert(new byte[]{2});
+        tree.insert(new byte[]{3});
+    }
+}
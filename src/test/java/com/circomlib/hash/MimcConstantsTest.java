@@ -0,0 +1,104 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class MimcConstantsTest {
+
+    @Test
+    public void resourceMatchesDerivation() throws IOException {
+        try (InputStream in = MimcConstants.class.getResourceAsStream(MimcConstants.resourceName("mimcsponge", 220))) {
+            assertNotNull(in);
+            assertArrayEquals(MimcConstants.derive("mimcsponge", 220), MimcConstants.read(in, 220));
+        }
+    }
+
+    @Test
+    public void firstConstant() {
+        Fr[] c = MimcConstants.of("mimcsponge", 220);
+        assertEquals(new BigInteger("7120861356467848435263064379192047478074060781135320967663101236819528304084"), c[1].toBigInteger());
+        assertEquals(BigInteger.ZERO, c[219].toBigInteger());
+    }
+
+    @Test
+    public void shared() {
+        assertSame(MimcConstants.of("mimcsponge", 220), MimcConstants.of("mimcsponge", 220));
+        assertSame(MimcConstants.of("other", 10), MimcConstants.of("other", 10));
+    }
+
+    @Test
+    public void register() throws IOException {
+        Fr[] derived = MimcConstants.derive("registered", 12);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MimcConstants.write(derived, out);
+        MimcSponge.registerConstants("registered", 12, new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(derived, MimcConstants.of("registered", 12));
+    }
+
+    @Test
+    public void registerMismatch() throws IOException {
+        Fr[] constants = MimcConstants.derive("mimcsponge", 220).clone();
+        constants[1] = new Fr().setOne();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MimcConstants.write(constants, out);
+        try {
+            MimcSponge.registerConstants("mimcsponge", 220, new ByteArrayInputStream(out.toByteArray()));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(new BigInteger("7120861356467848435263064379192047478074060781135320967663101236819528304084"), MimcConstants.of("mimcsponge", 220)[1].toBigInteger());
+    }
+
+    @Test(expected = IOException.class)
+    public void registerNonZeroLast() throws IOException {
+        Fr[] constants = MimcConstants.derive("nonzero", 12);
+        constants[11] = new Fr().setOne();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MimcConstants.write(constants, out);
+        MimcConstants.register("nonzero", 12, new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void nonCanonical() throws IOException {
+        byte[] data = new byte[96];
+        byte[] p = Fr.MODULUS.toByteArray();
+        System.arraycopy(p, p.length - 32, data, 32, 32);
+        MimcConstants.read(new ByteArrayInputStream(data), 3);
+    }
+
+    @Test
+    public void registerKeepsShared() throws IOException {
+        Fr[] shared = MimcConstants.of("mimcsponge", 220);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MimcConstants.write(shared, out);
+        MimcSponge.registerConstants("mimcsponge", 220, new ByteArrayInputStream(out.toByteArray()));
+        assertSame(shared, MimcConstants.of("mimcsponge", 220));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resourceNameRejectsPath() {
+        MimcConstants.resourceName("../secret", 220);
+    }
+
+    @Test
+    public void seedOutsideResources() {
+        assertArrayEquals(MimcConstants.derive("../mimcsponge", 10), MimcConstants.of("../mimcsponge", 10));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        MimcConstants.read(new ByteArrayInputStream(new byte[64]), 3);
+    }
+}
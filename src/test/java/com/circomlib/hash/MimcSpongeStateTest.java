@@ -0,0 +1,52 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MimcSpongeStateTest {
+
+    private static final MimcSponge MIMC = new MimcSponge();
+
+    @Test
+    public void matchesMultiHash() {
+        byte[][] input = new byte[][]{BigInteger.valueOf(1).toByteArray(), BigInteger.valueOf(2).toByteArray()};
+        byte[][] expected = MIMC.multiHash(input, 5, 3);
+
+        MimcSpongeState state = MIMC.newState(5).absorb(input[0]).absorb(input[1]);
+        assertArrayEquals(expected, state.squeeze(3));
+
+        // outputs keep coming one by one
+        state = MIMC.newState(5).absorb(input[0]).absorb(input[1]);
+        assertArrayEquals(expected[0], state.squeeze(1)[0]);
+        assertArrayEquals(expected[1], state.squeeze(1)[0]);
+        assertArrayEquals(expected[2], state.squeeze(1)[0]);
+
+        assertEquals("2bcea035a1251603f1ceaf73cd4ae89427c47075bb8e3a944039ff1e3d6d2a6f",
+                ByteArrayOperator.toString(MIMC.newState().absorb(new Fr(1)).absorb(new Fr(2)).squeeze(1)[0], 16));
+    }
+
+    @Test
+    public void sharedPrefix() {
+        MimcSpongeState prefix = MIMC.newState().absorb(new Fr(7)).absorb(new Fr(8));
+        MimcSpongeState saved = prefix.snapshot();
+        MimcSpongeState state = MIMC.newState();
+        for (int i = 0; i < 3; i++) {
+            byte[] suffix = BigInteger.valueOf(100 + i).toByteArray();
+            byte[][] expected = MIMC.multiHash(new byte[][]{BigInteger.valueOf(7).toByteArray(), BigInteger.valueOf(8).toByteArray(), suffix});
+            assertArrayEquals(expected[0], state.restore(saved).absorb(suffix).squeeze(1)[0]);
+        }
+        // the snapshot is a copy
+        prefix.absorb(new Fr(9));
+        assertArrayEquals(MIMC.multiHash(new byte[][]{BigInteger.valueOf(7).toByteArray(), BigInteger.valueOf(8).toByteArray()})[0],
+                saved.snapshot().squeeze(1)[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void otherKey() {
+        MIMC.newState(1).restore(MIMC.newState(2));
+    }
+}
@@ -3,7 +3,9 @@ package com.circomlib.hash;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class MimcSpongeTest {
@@ -24,6 +26,89 @@ public class MimcSpongeTest {
         assertEquals("3e86bdc4eac70bd601473c53d8233b145fe8fd8bf6ef25f0b217a1da305665c", ByteArrayOperator.toString(result[0], 16));
     }
 
+    @Test
+    public void negativeKey() {
+        MimcSponge mimc = new MimcSponge();
+        byte[] one = new byte[]{1};
+        byte[] two = new byte[]{2};
+        PairByteArray expected = mimc.hash(one, two, 255);
+        PairByteArray res = mimc.hash(one, two, -1);
+        assertArrayEquals(expected.l, res.l);
+        assertArrayEquals(expected.r, res.r);
+        assertArrayEquals(mimc.hash(1, 2, 0xFF00).l, mimc.hash(1, 2, -256).l);
+        byte[][] input = intArrayToBytesArray(new int[]{1, 2});
+        assertArrayEquals(mimc.multiHash(input, 255, 2), mimc.multiHash(input, -1, 2));
+    }
+
+    @Test
+    public void permuteInPlace() {
+        MimcSponge mimc = new MimcSponge();
+        PairByteArray expected = mimc.hash(1, 2, 3);
+        Fr xl = new Fr(1);
+        Fr xr = new Fr(2);
+        mimc.permute(xl, xr, new Fr(3));
+        assertEquals(ByteArrayOperator.toString(expected.l, 16), ByteArrayOperator.toString(xl.toByteArray(), 16));
+        assertEquals(ByteArrayOperator.toString(expected.r, 16), ByteArrayOperator.toString(xr.toByteArray(), 16));
+
+        // odd number of rounds, the halves end up swapped in the loop
+        MimcSponge odd = new MimcSponge("mimcsponge", 7);
+        PairByteArray h = odd.hash(5, 6);
+        PairByteArray again = odd.hash(h.l, h.r);
+        xl.set(5);
+        xr.set(6);
+        odd.permute(xl, xr, new Fr());
+        odd.permute(xl, xr, new Fr());
+        assertEquals(ByteArrayOperator.toString(again.l, 16), ByteArrayOperator.toString(xl.toByteArray(), 16));
+        assertEquals(ByteArrayOperator.toString(again.r, 16), ByteArrayOperator.toString(xr.toByteArray(), 16));
+    }
+
+    @Test
+    public void batch() {
+        MimcSponge mimc = new MimcSponge();
+        Random rnd = new Random(22);
+        int count = 70;
+        byte[][] flat = new byte[3][32 * count];
+        // keys fit in a long for hash(l, r, k)
+        for (int f = 0; f < flat.length; f++) {
+            for (int i = 0; i < count; i++) {
+                byte[] e = new BigInteger(f < 2 ? 250 : 62, rnd).toByteArray();
+                System.arraycopy(e, 0, flat[f], 32 * i + 32 - e.length, e.length);
+            }
+        }
+        byte[] outL = new byte[32 * count];
+        byte[] outR = new byte[32 * count];
+        for (boolean parallel : new boolean[]{false, true}) {
+            mimc.hash(flat[0], flat[1], flat[2], count, outL, outR, parallel);
+            for (int i = 0; i < count; i++) {
+                PairByteArray expected = mimc.hash(element(flat[0], i), element(flat[1], i), new BigInteger(1, element(flat[2], i)).longValue());
+                assertEquals(new BigInteger(expected.l), new BigInteger(1, element(outL, i)));
+                assertEquals(new BigInteger(expected.r), new BigInteger(1, element(outR, i)));
+            }
+        }
+    }
+
+    @Test
+    public void batchZeroKeys() {
+        MimcSponge mimc = new MimcSponge("mimcsponge", 7);
+        byte[] l = new byte[64];
+        byte[] r = new byte[64];
+        l[31] = 1;
+        r[31] = 2;
+        l[63] = 3;
+        r[63] = 4;
+        byte[] outL = new byte[64];
+        byte[] outR = new byte[64];
+        mimc.hash(l, r, null, 2, outL, outR, false);
+        assertEquals(new BigInteger(mimc.hash(3, 4).l), new BigInteger(1, element(outL, 1)));
+        assertEquals(new BigInteger(mimc.hash(1, 2).r), new BigInteger(1, element(outR, 0)));
+    }
+
+    private static byte[] element(byte[] flat, int i) {
+        byte[] e = new byte[33];
+        System.arraycopy(flat, 32 * i, e, 1, 32);
+        return e;
+    }
+
     private byte[][] intArrayToBytesArray(int[] x) {
         byte[][] result = new byte[x.length][];
         for(int i=0; i<x.length; i++) {
@@ -3,8 +3,10 @@ package com.circomlib.hash;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class MontgomeryTest {
 
@@ -62,4 +64,112 @@ public class MontgomeryTest {
         assertEquals("57896044618658097711785492504343953926634992332820281301830804312103976049700",montgomery.reduce(montgomery.expend(ba)).toString(10));
     }
 
+    @Test
+    public void expendUsesBitLengthR() {
+        BigInteger bp = new BigInteger("57896044618658097711785492504343953926634992332820282019728792003956564819949");
+        Montgomery montgomery = new Montgomery(bp);
+        BigInteger ba = new BigInteger("12345678901234567890");
+        assertEquals(ba.shiftLeft(bp.bitLength()).mod(bp), montgomery.expend(ba));
+        assertEquals(ba, montgomery.reduce(ba.shiftLeft(bp.bitLength()).mod(bp)));
+        assertEquals(BigInteger.ONE.shiftLeft(2 * bp.bitLength()).mod(bp), montgomery.r2);
+        assertEquals(ba, montgomery.expendTest(montgomery.reduceTest(ba)));
+    }
+
+    @Test
+    public void multiplyMatchesBigInteger() {
+        Random rnd = new Random(11);
+        BigInteger[] moduli = new BigInteger[]{
+                Fr.MODULUS,
+                new BigInteger("2736030358979909402780800718157159386076813972158567259200215660948447373041"),
+                BigInteger.ONE.shiftLeft(255).subtract(BigInteger.valueOf(19)),
+                BigInteger.ONE.shiftLeft(256).subtract(BigInteger.valueOf(189)),
+                BigInteger.ONE.shiftLeft(127).subtract(BigInteger.ONE),
+                new BigInteger(300, rnd).setBit(0),
+                BigInteger.valueOf(1000003)
+        };
+        for (BigInteger m : moduli) {
+            Montgomery montgomery = Montgomery.of(m);
+            for (int i = 0; i < 100; i++) {
+                BigInteger a = new BigInteger(m.bitLength(), rnd).mod(m);
+                BigInteger b = new BigInteger(m.bitLength(), rnd).mod(m);
+                assertEquals(a.multiply(b).mod(m), montgomery.multiply(a, b));
+
+                long[] x = montgomery.toLimbs(a);
+                long[] y = montgomery.toLimbs(b);
+                montgomery.toMontgomery(x, x);
+                montgomery.toMontgomery(y, y);
+                long[] r = montgomery.newElement();
+                montgomery.add(x, y, r);
+                montgomery.mul(r, x, r);
+                montgomery.sub(r, y, r);
+                montgomery.fromMontgomery(r, r);
+                assertEquals(a.add(b).multiply(a).subtract(b).mod(m), montgomery.toBigInteger(r));
+            }
+        }
+    }
+
+    @Test
+    public void sharedEngine() {
+        assertSame(Montgomery.of(Fr.MODULUS), Montgomery.of(new BigInteger(Fr.MODULUS.toString())));
+        assertSame(Fr.ENGINE, Montgomery.of(Fr.MODULUS));
+    }
+
+    // textbook Jacobi symbol, n odd
+    private static int jacobiReference(BigInteger a, BigInteger n) {
+        a = a.mod(n);
+        int t = 1;
+        while (a.signum() != 0) {
+            while (!a.testBit(0)) {
+                a = a.shiftRight(1);
+                int r = n.intValue() & 7;
+                if (r == 3 || r == 5) {
+                    t = -t;
+                }
+            }
+            BigInteger tmp = a;
+            a = n;
+            n = tmp;
+            if ((a.intValue() & 3) == 3 && (n.intValue() & 3) == 3) {
+                t = -t;
+            }
+            a = a.mod(n);
+        }
+        return n.equals(BigInteger.ONE) ? t : 0;
+    }
+
+    @Test
+    public void jacobi() {
+        Random rnd = new Random(11);
+        for (int bits : new int[]{5, 63, 64, 65, 130, 254, 300}) {
+            for (int i = 0; i < 200; i++) {
+                BigInteger n = new BigInteger(bits, rnd).setBit(0);
+                if (n.equals(BigInteger.ONE)) {
+                    continue;
+                }
+                BigInteger a = new BigInteger(bits + 8, rnd).mod(n);
+                if (i % 10 == 0) {
+                    a = a.multiply(a).mod(n);
+                }
+                int limbs = (n.bitLength() + 63) / 64;
+                assertEquals(jacobiReference(a, n),
+                        Montgomery.jacobi(Montgomery.toLimbs(a, limbs), Montgomery.toLimbs(n, limbs)));
+            }
+        }
+    }
+
+    @Test
+    public void legendre() {
+        Random rnd = new Random(12);
+        BigInteger e = Fr.MODULUS.shiftRight(1);
+        for (int i = 0; i < 200; i++) {
+            BigInteger a = new BigInteger(256, rnd).mod(Fr.MODULUS);
+            BigInteger ref = a.modPow(e, Fr.MODULUS);
+            int expected = ref.equals(BigInteger.ONE) ? 1 : ref.signum() == 0 ? 0 : -1;
+            assertEquals(expected, Fr.fromBigInteger(a).legendre());
+        }
+        assertEquals(0, new Fr().legendre());
+        assertEquals(1, new Fr(4).legendre());
+        assertEquals(-1, new Fr(5).legendre());
+    }
+
 }
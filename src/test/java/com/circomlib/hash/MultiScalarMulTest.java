@@ -0,0 +1,114 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiScalarMulTest {
+
+    private final BabyJub babyJub = new BabyJub();
+
+    private static ExtendedPoint[] randomPoints(int n, Random rnd) {
+        ExtendedPoint b8 = ExtendedPoint.fromAffine(BabyJub.BASE8_X, BabyJub.BASE8_Y);
+        ExtendedPoint[] points = new ExtendedPoint[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new ExtendedPoint().mul(b8, new BigInteger(250, rnd));
+        }
+        ExtendedPoint.normalize(points);
+        return points;
+    }
+
+    private static ExtendedPoint naive(ExtendedPoint[] points, BigInteger[] scalars) {
+        ExtendedPoint acc = new ExtendedPoint();
+        for (int i = 0; i < points.length; i++) {
+            acc.add(acc, new ExtendedPoint().mul(points[i], scalars[i]));
+        }
+        return acc;
+    }
+
+    private static BigInteger[] randomScalars(int n, Random rnd) {
+        BigInteger[] scalars = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            scalars[i] = new BigInteger(rnd.nextInt(254) + 1, rnd);
+            if (i % 5 == 4) {
+                scalars[i] = scalars[i].negate();
+            }
+            if (i % 7 == 6) {
+                scalars[i] = BigInteger.ZERO;
+            }
+        }
+        return scalars;
+    }
+
+    @Test
+    public void straus() {
+        Random rnd = new Random(1);
+        for (int n : new int[]{1, 2, 5, 40}) {
+            ExtendedPoint[] points = randomPoints(n, rnd);
+            BigInteger[] scalars = randomScalars(n, rnd);
+            ExtendedPoint expected = naive(points, scalars);
+            assertEquals(expected, MultiScalarMul.compute(points, scalars, false));
+            assertEquals(expected, MultiScalarMul.compute(points, scalars, true));
+        }
+    }
+
+    @Test
+    public void pippenger() {
+        Random rnd = new Random(2);
+        int n = MultiScalarMul.STRAUS_THRESHOLD + 40;
+        ExtendedPoint[] points = randomPoints(n, rnd);
+        BigInteger[] scalars = randomScalars(n, rnd);
+        ExtendedPoint expected = naive(points, scalars);
+        assertEquals(expected, MultiScalarMul.compute(points, scalars, false));
+        assertEquals(expected, MultiScalarMul.compute(points, scalars, true));
+
+        // small windows on few points exercise the bucket sums directly
+        BigInteger[] small = randomScalars(20, rnd);
+        ExtendedPoint[] few = randomPoints(20, rnd);
+        BigInteger[] abs = new BigInteger[20];
+        ExtendedPoint[] signed = new ExtendedPoint[20];
+        for (int i = 0; i < 20; i++) {
+            abs[i] = small[i].abs();
+            signed[i] = small[i].signum() < 0 ? new ExtendedPoint().neg(few[i]) : few[i];
+        }
+        assertEquals(naive(few, small), MultiScalarMul.pippenger(signed, abs, 254, false));
+    }
+
+    @Test
+    public void pippengerTopWindowCarry() {
+        // bits = c - 1 mod c : the top window is full but for its sign bit and takes the last carry
+        Random rnd = new Random(4);
+        int bits = 251;
+        for (int n : new int[]{300, 600}) {
+            int c = MultiScalarMul.window(n, bits);
+            assertEquals(c - 1, bits % c);
+            ExtendedPoint[] points = randomPoints(n, rnd);
+            BigInteger[] scalars = new BigInteger[n];
+            for (int i = 0; i < n; i++) {
+                scalars[i] = new BigInteger(bits, rnd).setBit(bits - 1);
+            }
+            assertEquals(naive(points, scalars), MultiScalarMul.compute(points, scalars, false));
+        }
+    }
+
+    @Test
+    public void babyJubApi() {
+        Random rnd = new Random(3);
+        PairByteArray[] points = new PairByteArray[6];
+        byte[][] scalars = new byte[6][];
+        PairByteArray expected = new PairByteArray(new byte[]{0}, new byte[]{1});
+        for (int i = 0; i < points.length; i++) {
+            points[i] = babyJub.mulBase8(new BigInteger(250, rnd).toByteArray());
+            scalars[i] = new BigInteger(250, rnd).toByteArray();
+            expected = babyJub.addPoint(expected, babyJub.mulPointEscalar(points[i], scalars[i]));
+        }
+        PairByteArray r = babyJub.multiScalarMul(points, scalars);
+        assertEquals(new BigInteger(expected.l), new BigInteger(r.l));
+        assertEquals(new BigInteger(expected.r), new BigInteger(r.r));
+        assertTrue(ExtendedPoint.fromPair(babyJub.multiScalarMul(new PairByteArray[0], new byte[0][])).isIdentity());
+    }
+}
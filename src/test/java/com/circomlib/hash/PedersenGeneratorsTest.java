@@ -0,0 +1,67 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PedersenGeneratorsTest {
+
+    @Test
+    public void firstGenerators() {
+        PairByteArray g0 = PedersenGenerators.table(0)[0][0].toPair();
+        assertEquals("10457101036533406547632367118273992217979173478358440826365724437999023779287", ByteArrayOperator.toString(g0.l, 10));
+        assertEquals("19824078218392094440610104313265183977899662750282163392862422243483260492317", ByteArrayOperator.toString(g0.r, 10));
+        PairByteArray g1 = PedersenGenerators.table(1)[0][0].toPair();
+        assertEquals("2671756056509184035029146175565761955751135805354291559563293617232983272177", ByteArrayOperator.toString(g1.l, 10));
+        assertEquals("2663205510731142763556352975002641716101654201788071096152948830924149045094", ByteArrayOperator.toString(g1.r, 10));
+    }
+
+    @Test
+    public void windowTable() {
+        ExtendedPoint[][] table = PedersenGenerators.table(2);
+        assertEquals(PedersenGenerators.N_WINDOWS_PER_SEGMENT, table.length);
+        ExtendedPoint g = table[0][0];
+        for (int w = 0; w < table.length; w += 7) {
+            for (int k = 1; k <= 8; k++) {
+                ExtendedPoint expected = new ExtendedPoint().mul(g, BigInteger.valueOf(k).shiftLeft(5 * w));
+                assertEquals(expected, table[w][k - 1]);
+            }
+        }
+    }
+
+    @Test
+    public void derivedOnce() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] tables = new Future<?>[threads];
+        for (int i = 0; i < threads; i++) {
+            tables[i] = pool.submit(() -> {
+                start.await();
+                return PedersenGenerators.table(7);
+            });
+        }
+        start.countDown();
+        for (int i = 1; i < threads; i++) {
+            assertSame(tables[0].get(), tables[i].get());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void prewarm() {
+        Pedersen.prewarm(4);
+        for (int s = 0; s < 4; s++) {
+            assertSame(PedersenGenerators.table(s), PedersenGenerators.table(s));
+            assertTrue(new BabyJub().inSubgroup(PedersenGenerators.table(s)[0][0]));
+        }
+    }
+}
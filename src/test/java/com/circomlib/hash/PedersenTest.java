@@ -2,8 +2,14 @@ package com.circomlib.hash;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class PedersenTest {
@@ -15,4 +21,119 @@ public class PedersenTest {
         assertEquals("0e90d7d613ab8b5ea7f4f8bc537db6bb0fa2e5e97bbac1c1f609ef9e6a35fd8b", ByteArrayOperator.toHexString(result));
     }
 
+    @Test
+    public void negativeSegmentScalar() {
+        // the last window of the segment has its sign bit set
+        Pedersen pedersen = new Pedersen();
+        assertEquals("52fd89a0d62f1fcb45923562d6f87b61350108660af1254011934583890cd2ae",
+                ByteArrayOperator.toHexString(pedersen.hash(new byte[]{(byte) 0x80})));
+        assertEquals("4ab0c9c6f7582dafe8c33c46860e07f2662bd45a92f4f2491a103cb05bcad0a3",
+                ByteArrayOperator.toHexString(pedersen.hash("Hellp".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void severalSegments() {
+        Pedersen pedersen = new Pedersen();
+        byte[] input = new byte[40];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) i;
+        }
+        assertEquals("1d2c197992775570b539bc11b8d5636aa95fc2102d2b66c904563e40f87db0a6",
+                ByteArrayOperator.toHexString(pedersen.hash(input)));
+        byte[] ones = new byte[64];
+        Arrays.fill(ones, (byte) 0xFF);
+        assertEquals("a559573d4c121edacb993873213d97cd153863ce5a1263d16cad67808f0128a4",
+                ByteArrayOperator.toHexString(pedersen.hash(ones)));
+    }
+
+    @Test
+    public void tablesReused() {
+        // segments 0 to 4, the tables of the first ones are built by the first hash
+        Pedersen pedersen = new Pedersen();
+        byte[] input = new byte[101];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 7 + 3);
+        }
+        pedersen.hash("Hello".getBytes(StandardCharsets.UTF_8));
+        assertEquals("f7015c2672e9898edf9a0038e4dbe71a14503868e6db92a6ba4913a8a66c6280",
+                ByteArrayOperator.toHexString(pedersen.hash(input)));
+        assertEquals("0e90d7d613ab8b5ea7f4f8bc537db6bb0fa2e5e97bbac1c1f609ef9e6a35fd8b",
+                ByteArrayOperator.toHexString(pedersen.hash("Hello".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void empty() {
+        Pedersen pedersen = new Pedersen();
+        assertEquals("0100000000000000000000000000000000000000000000000000000000000000",
+                ByteArrayOperator.toHexString(pedersen.hash(new byte[0])));
+        assertEquals("0100000000000000000000000000000000000000000000000000000000000000",
+                ByteArrayOperator.toHexString(pedersen.doFinal()));
+    }
+
+    @Test
+    public void streaming() {
+        byte[] input = new byte[101];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 7 + 3);
+        }
+        Pedersen pedersen = new Pedersen();
+        byte[] expected = pedersen.hash(input);
+
+        // chunks crossing the 25 bytes segment boundaries
+        for (int chunk : new int[]{1, 7, 25, 40}) {
+            for (int off = 0; off < input.length; off += chunk) {
+                pedersen.update(input, off, Math.min(chunk, input.length - off));
+            }
+            assertEquals(ByteArrayOperator.toHexString(expected), ByteArrayOperator.toHexString(pedersen.doFinal()));
+        }
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(input.length);
+        direct.put(input).flip();
+        pedersen.update(ByteBuffer.wrap(input, 0, 30));
+        direct.position(30);
+        pedersen.update(direct);
+        assertEquals(ByteArrayOperator.toHexString(expected), ByteArrayOperator.toHexString(pedersen.doFinal()));
+
+        pedersen.update("Hello".getBytes(StandardCharsets.UTF_8));
+        assertEquals("0e90d7d613ab8b5ea7f4f8bc537db6bb0fa2e5e97bbac1c1f609ef9e6a35fd8b", ByteArrayOperator.toHexString(pedersen.doFinal()));
+    }
+
+    @Test
+    public void parallel() {
+        Pedersen pedersen = new Pedersen();
+        byte[] input = new byte[1013];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 31 + 5);
+        }
+        assertEquals(ByteArrayOperator.toHexString(pedersen.hash(input)), ByteArrayOperator.toHexString(pedersen.hash(input, true)));
+        assertEquals("0e90d7d613ab8b5ea7f4f8bc537db6bb0fa2e5e97bbac1c1f609ef9e6a35fd8b",
+                ByteArrayOperator.toHexString(pedersen.hash("Hello".getBytes(StandardCharsets.UTF_8), true)));
+    }
+
+    @Test
+    public void hashAll() {
+        Pedersen pedersen = new Pedersen();
+        Random rnd = new Random(18);
+        byte[][] inputs = new byte[150][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = new byte[rnd.nextInt(80)];
+            rnd.nextBytes(inputs[i]);
+        }
+        byte[][] results = pedersen.hashAll(inputs);
+        for (int i = 0; i < inputs.length; i++) {
+            assertArrayEquals(pedersen.hash(inputs[i]), results[i]);
+        }
+
+        List<byte[]> list = pedersen.hashAll(Arrays.asList(inputs));
+        for (int i = 0; i < inputs.length; i++) {
+            assertArrayEquals(results[i], list.get(i));
+        }
+
+        List<byte[]> streamed = new ArrayList<>();
+        pedersen.hashAll(Arrays.spliterator(inputs), 7, streamed::add);
+        assertEquals(inputs.length, streamed.size());
+        for (int i = 0; i < inputs.length; i++) {
+            assertArrayEquals(results[i], streamed.get(i));
+        }
+    }
 }
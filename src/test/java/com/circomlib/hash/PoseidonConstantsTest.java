@@ -0,0 +1,71 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PoseidonConstantsTest {
+
+    @Test
+    public void firstConstant() {
+        PoseidonConstants constants = PoseidonConstants.of(3);
+        assertEquals(new BigInteger("0ee9a592ba9a9518d05986d656f40c2114c4993c11bb29938d21d47304cd8e6e", 16), constants.c[0].toBigInteger());
+        assertEquals((8 + 57) * 3, constants.c.length);
+    }
+
+    @Test
+    public void shared() {
+        assertSame(PoseidonConstants.of(5), PoseidonConstants.of(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooWide() {
+        PoseidonConstants.of(18);
+    }
+
+    @Test
+    public void optimizedMatchesReference() {
+        Poseidon poseidon = new Poseidon();
+        for (int t = PoseidonConstants.MIN_WIDTH; t <= PoseidonConstants.MAX_WIDTH; t++) {
+            Fr[] state = new Fr[t];
+            Fr[] expected = new Fr[t];
+            for (int i = 0; i < t; i++) {
+                state[i] = new Fr(1000L * t + i);
+                expected[i] = new Fr(state[i]);
+            }
+            reference(PoseidonConstants.of(t), expected);
+            poseidon.permute(state);
+            for (int i = 0; i < t; i++) {
+                assertEquals("t = " + t + ", element " + i, expected[i], state[i]);
+            }
+        }
+    }
+
+    // round by round definition : constants, s-boxes of all the elements or of the first one, matrix
+    private static void reference(PoseidonConstants constants, Fr[] state) {
+        int t = state.length;
+        int half = PoseidonConstants.N_ROUNDS_F / 2;
+        for (int r = 0; r < PoseidonConstants.N_ROUNDS_F + constants.nRoundsP; r++) {
+            boolean full = r < half || r >= half + constants.nRoundsP;
+            for (int i = 0; i < t; i++) {
+                state[i].add(constants.c[r * t + i]);
+                if (full || i == 0) {
+                    state[i].set(new Fr().square(state[i]).square().mul(state[i]));
+                }
+            }
+            Fr[] next = new Fr[t];
+            for (int i = 0; i < t; i++) {
+                next[i] = new Fr();
+                for (int j = 0; j < t; j++) {
+                    next[i].add(new Fr().mul(constants.m[i][j], state[j]));
+                }
+            }
+            for (int i = 0; i < t; i++) {
+                state[i].set(next[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PoseidonTest {
+
+    private final Poseidon poseidon = new Poseidon();
+
+    @Test
+    public void testHash() {
+        assertEquals(new BigInteger("18586133768512220936620570745912940619677854269274689475585506675881198879027"),
+                new BigInteger(poseidon.hash(bytes(1))));
+        assertEquals(new BigInteger("7853200120776062878684798364095072458815029376092732009249414926327459813530"),
+                new BigInteger(poseidon.hash(bytes(1, 2))));
+        assertEquals(new BigInteger("299c867db6c1fdd79dcefa40e4510b9837e60ebb1ce0663dbaa525df65250465", 16),
+                new BigInteger(poseidon.hash(bytes(1, 2, 3, 4))));
+    }
+
+    @Test
+    public void hashFr() {
+        assertEquals(new BigInteger("7853200120776062878684798364095072458815029376092732009249414926327459813530"),
+                poseidon.hash(new Fr(1), new Fr(2)).toBigInteger());
+    }
+
+    @Test
+    public void hashAll() {
+        byte[][][] inputs = new byte[150][][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = bytes(i, i * i, -i);
+        }
+        byte[][] result = poseidon.hashAll(inputs, 3);
+        for (int i = 0; i < inputs.length; i++) {
+            assertArrayEquals(poseidon.hash(inputs[i]), result[i]);
+        }
+    }
+
+    @Test
+    public void batch() {
+        int count = 130;
+        int nInputs = 2;
+        byte[] inputs = new byte[count * nInputs * 32];
+        for (int k = 0; k < count * nInputs; k++) {
+            byte[] e = Fr.MODULUS.subtract(BigInteger.valueOf(k)).toByteArray();
+            System.arraycopy(e, e.length - 32, inputs, k * 32, 32);
+        }
+        byte[] out = new byte[count * 32];
+        poseidon.hash(inputs, nInputs, count, out, true);
+        byte[] sequential = new byte[count * 32];
+        poseidon.hash(inputs, nInputs, count, sequential, false);
+        assertArrayEquals(out, sequential);
+        for (int i = 0; i < count; i++) {
+            BigInteger expected = new BigInteger(poseidon.hash(bytes(-2 * i, -2 * i - 1)));
+            byte[] o = new byte[32];
+            System.arraycopy(out, i * 32, o, 0, 32);
+            assertEquals(expected, new BigInteger(1, o));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooManyInputs() {
+        poseidon.hash(new byte[17][]);
+    }
+
+    private static byte[][] bytes(long... values) {
+        byte[][] result = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = BigInteger.valueOf(values[i]).mod(Fr.MODULUS).toByteArray();
+        }
+        return result;
+    }
+}
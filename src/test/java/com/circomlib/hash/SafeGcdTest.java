@@ -0,0 +1,69 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SafeGcdTest {
+
+    private static void check(BigInteger m, Random rnd, int count) {
+        SafeGcd gcd = SafeGcd.of(m);
+        for (int i = 0; i < count; i++) {
+            BigInteger a = new BigInteger(m.bitLength() + 8, rnd).mod(m);
+            if (!a.gcd(m).equals(BigInteger.ONE)) {
+                continue;
+            }
+            assertEquals(a.modInverse(m), gcd.inverse(a));
+        }
+        assertEquals(BigInteger.ONE, gcd.inverse(BigInteger.ONE));
+        assertEquals(m.subtract(BigInteger.ONE), gcd.inverse(m.subtract(BigInteger.ONE)));
+        assertEquals(BigInteger.ZERO, gcd.inverse(BigInteger.ZERO));
+    }
+
+    @Test
+    public void frInverse() {
+        check(Fr.MODULUS, new Random(1), 2000);
+    }
+
+    @Test
+    public void otherModuli() {
+        Random rnd = new Random(2);
+        String[] moduli = new String[]{
+                "3", "13", "65537", "1000000009", "18446744073709551557", "340282366920938463463374607431768211297",
+                "2736030358979909402780800718157159386076813972158567259200215660948447373041",
+                "115792089237316195423570985008687907853269984665640564039457584007908834671663",
+                "21888242871839275222246405745257275088548364400416034343698204186575808495617000000000000000000003",
+                "1000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000000001"
+        };
+        for (String m : moduli) {
+            check(new BigInteger(m), rnd, 200);
+        }
+    }
+
+    @Test
+    public void randomModuli() {
+        Random rnd = new Random(3);
+        for (int bits = 2; bits < 400; bits += 7) {
+            BigInteger m = new BigInteger(bits, rnd).setBit(0).setBit(bits - 1);
+            if (m.equals(BigInteger.ONE)) {
+                continue;
+            }
+            check(m, rnd, 20);
+        }
+    }
+
+    @Test
+    public void montgomeryForm() {
+        Random rnd = new Random(4);
+        for (int i = 0; i < 200; i++) {
+            Fr a = Fr.fromBigInteger(new BigInteger(256, rnd).mod(Fr.MODULUS));
+            Fr inv = new Fr().inverse(a);
+            assertTrue(a.isZero() || new Fr().mul(a, inv).isOne());
+            assertEquals(new Fr().pow(a, Fr.MODULUS.subtract(BigInteger.TWO)), inv);
+        }
+    }
+}
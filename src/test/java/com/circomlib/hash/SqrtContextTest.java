@@ -0,0 +1,80 @@
+package com.circomlib.hash;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SqrtContextTest {
+
+    private static void checkPrime(BigInteger p, Random rnd) {
+        SqrtContext ctx = SqrtContext.of(p);
+        BigInteger half = p.shiftRight(1);
+        for (int i = 0; i < 50; i++) {
+            BigInteger a = new BigInteger(p.bitLength() + 8, rnd).mod(p);
+            BigInteger a2 = a.multiply(a).mod(p);
+            BigInteger r = ctx.sqrt(a2);
+            assertEquals(a2, r.multiply(r).mod(p));
+            assertTrue(r.compareTo(half) <= 0);
+
+            BigInteger nr = a2.multiply(ctx.z).mod(p);
+            if (nr.signum() != 0) {
+                assertNull(ctx.sqrt(nr));
+            }
+        }
+        assertEquals(BigInteger.ZERO, ctx.sqrt(BigInteger.ZERO));
+    }
+
+    @Test
+    public void frSqrt() {
+        SqrtContext ctx = SqrtContext.of(Fr.MODULUS);
+        assertEquals(28, ctx.s);
+        assertEquals(BigInteger.valueOf(5), ctx.z);
+        checkPrime(Fr.MODULUS, new Random(1));
+    }
+
+    @Test
+    public void otherPrimes() {
+        Random rnd = new Random(2);
+        String[] primes = new String[]{
+                "13", "101", "10009", "100049", "1000000009", "1000000000039", "65537",
+                "57896044618658097711785492504343953926634992332820282019728792003956564819949",
+                "21888242871839275222246405745257275088696311157297823662689037894645226208583",
+                "2736030358979909402780800718157159386076813972158567259200215660948447373041",
+                "100000000000000000000000000000000000000000000000577"
+        };
+        for (String p : primes) {
+            checkPrime(new BigInteger(p), rnd);
+        }
+    }
+
+    @Test
+    public void tonelliShanks() {
+        TonelliShanks.Solution sol = TonelliShanks.ts(10L, 13L);
+        assertTrue(sol.exists);
+        assertEquals(BigInteger.valueOf(6), sol.root1);
+        assertEquals(BigInteger.valueOf(7), sol.root2);
+        assertTrue(!TonelliShanks.ts(2L, 13L).exists);
+
+        sol = TonelliShanks.ts(665820697L, 1000000009L);
+        assertEquals(BigInteger.valueOf(665820697L), sol.root1.multiply(sol.root1).mod(BigInteger.valueOf(1000000009L)));
+    }
+
+    @Test
+    public void frConcurrent() {
+        assertSame(SqrtContext.of(Fr.MODULUS), SqrtContext.of(new BigInteger(Fr.MODULUS.toString())));
+        boolean ok = IntStream.range(0, 2000).parallel().allMatch(i -> {
+            Fr a = new Fr(i + 2);
+            Fr a2 = new Fr().square(a);
+            Fr r = new Fr();
+            return r.sqrt(a2) && new Fr().square(r).equals(a2);
+        });
+        assertTrue(ok);
+    }
+}
@@ -30,4 +30,35 @@ public class Blake256Test {
         assertEquals("d419bad32d504fb7d44d460c42c5593fe544fa4c135dec31e21bd9abdcc22d41", ByteArrayOperator.toHexString(bb.digest(message)));
     }
 
+    @Test
+    public void hashEmpty() {
+        Blake256 bb = new Blake256();
+        assertEquals("716f6e863f744b9ac22c97ec7b76ea5f5908bc5b2f67c61510bfc4751384ea7a", ByteArrayOperator.toHexString(bb.digest(new byte[0])));
+    }
+
+    @Test
+    public void paddingBoundaries() {
+        Blake256 bb = new Blake256();
+        assertEquals("dc980544f4181cc43505318e317cdfd4334dab81ae035a28818308867ce23060", ByteArrayOperator.toHexString(bb.digest(new byte[55])));
+        assertEquals("26ae7c289ebb79c9f3af2285023ab1037a9a6db63f0d6b6c6bbd199ab1627508", ByteArrayOperator.toHexString(bb.digest(new byte[56])));
+        assertEquals("6d994042954f8dc5633626cd50b2bc66d733a313d67fd9702c5a8149a8028c98", ByteArrayOperator.toHexString(bb.digest(new byte[64])));
+        assertEquals("4c8ed99ae2cfdd5bdaba9f19848fcd98b4c60e122096a47ea565c410a1d567ce", ByteArrayOperator.toHexString(bb.digest(new byte[128])));
+    }
+
+    @Test
+    public void byteByByte() {
+        Blake256 bb = new Blake256();
+        for (int i = 0; i < 119; i++) {
+            bb.update((byte) 0);
+        }
+        assertEquals("62485b9374ed4f0a788a49ad6e6498173678ad2d4d4d2748539ad42921375ef3", ByteArrayOperator.toHexString(bb.digest()));
+    }
+
+    @Test
+    public void reuse() {
+        Blake256 bb = new Blake256();
+        bb.digest("Hello world!".getBytes(StandardCharsets.UTF_8));
+        assertEquals("0ce8d4ef4dd7cd8d62dfded9d4edb0a774ae6a41929a74da23109e8f11139c87", ByteArrayOperator.toHexString(bb.digest(new byte[1])));
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.circomlib.provider.digest;
+
+import com.circomlib.hash.ByteArrayOperator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class Blake512Test {
+
+    @Test
+    public void hashEmpty() {
+        Blake512 bb = new Blake512();
+        assertEquals("a8cfbbd73726062df0c6864dda65defe58ef0cc52a5625090fa17601e1eecd1b628e94f396ae402a00acc9eab77b4d4c2e852aaaa25a636d80af3fc7913ef5b8", ByteArrayOperator.toHexString(bb.digest(new byte[0])));
+    }
+
+    @Test
+    public void hashZero() {
+        Blake512 bb = new Blake512();
+        assertEquals("97961587f6d970faba6d2478045de6d1fabd09b61ae50932054d52bc29d31be4ff9102b9f69e2bbdb83be13d4b9c06091e5fa0b48bd081b634058be0ec49beb3", ByteArrayOperator.toHexString(bb.digest(new byte[1])));
+    }
+
+    @Test
+    public void hashZeroBig() {
+        Blake512 bb = new Blake512();
+        assertEquals("313717d608e9cf758dcb1eb0f0c3cf9fc150b2d500fb33f51c52afc99d358a2f1374b8a38bba7974e7f6ef79cab16f22ce1e649d6e01ad9589c213045d545dde", ByteArrayOperator.toHexString(bb.digest(new byte[144])));
+    }
+
+    @Test
+    public void paddingBoundaries() {
+        Blake512 bb = new Blake512();
+        assertEquals("125695c5cc01de48d8b107c101778fc447a55ad3440a17dc153c6c652faecdbf017aed68f4f48826b9dfc413ef8f14ae7dfd8b74a0afcf47b61ce7dcb1058976", ByteArrayOperator.toHexString(bb.digest(new byte[111])));
+        assertEquals("aa42836448c9db34e0e45a49f916b54c25c9eefe3f9f65db0c13654bcbd9a938c24251f3bedb7105fa4ea54292ce9ebf5adea15ce530fb71cdf409387a78c6ff", ByteArrayOperator.toHexString(bb.digest(new byte[112])));
+        assertEquals("0f6f3a3a91f752d37e3d37141d5459aca9a88ed2d5b88f71120fbe39387b635ecf6402a5bcb7b18f216ea9a8137d28954098e586014c4d435c979d8860d3a977", ByteArrayOperator.toHexString(bb.digest(new byte[128])));
+        assertEquals("638d5f35b931eadfd47e0cbace1fc2bae7ed492c7b77e544d9558f899c24bbe327cc8cb1d558120147381cf20afe87902f6b3479198c99fd5408e91f823e88c5", ByteArrayOperator.toHexString(bb.digest(new byte[240])));
+    }
+
+    @Test
+    public void byteByByte() {
+        Blake512 bb = new Blake512();
+        for (int i = 0; i < 239; i++) {
+            bb.update((byte) 0);
+        }
+        assertEquals("0f7bfb0df7a9e8519cc9fce93badc71edfee74b39b8d142c42c2fb5244b3402f17160c7c9184d1fd1688c3fc5ec5ddbf785d4ff8dc0c2a28798375d5404aba29", ByteArrayOperator.toHexString(bb.digest()));
+    }
+}